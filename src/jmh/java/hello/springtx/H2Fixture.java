@@ -0,0 +1,56 @@
+package hello.springtx;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+벤치마크에서 스프링 부트 컨텍스트 없이 애플리케이션과 같은 설정의 H2 / JPA 환경을 만들기 위한 도구.
+ */
+public final class H2Fixture {
+
+    private H2Fixture() {
+    }
+
+    public static HikariDataSource dataSource(String name, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(poolSize);
+        config.setPoolName(name);
+        return new HikariDataSource(config);
+    }
+
+    public static EntityManagerFactory entityManagerFactory(DataSource dataSource) {
+        return entityManagerFactory(dataSource, Map.of());
+    }
+
+    public static EntityManagerFactory entityManagerFactory(DataSource dataSource, Map<String, Object> properties) {
+        Map<String, Object> jpaProperties = new HashMap<>();
+        jpaProperties.put("hibernate.hbm2ddl.auto", "create-drop");
+        jpaProperties.put("hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName());
+        jpaProperties.put("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName());
+        jpaProperties.put("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+        jpaProperties.put("hibernate.jdbc.batch_size", 50);
+        jpaProperties.put("hibernate.order_inserts", true);
+        jpaProperties.putAll(properties);
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("hello.springtx");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(jpaProperties);
+        factoryBean.afterPropertiesSet();
+        return factoryBean.getObject();
+    }
+
+}
@@ -0,0 +1,106 @@
+package hello.springtx.apply;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.springtx.H2Fixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/*
+TxBasicTest의 BasicService 호출 비용 비교
+- plainCall  : 프록시 없이 원본 객체 호출
+- proxyNonTx : 프록시를 통한 nonTx() 호출 (트랜잭션 로직 없이 원본 호출)
+- proxyTx    : 프록시를 통한 tx() 호출 (속성 조회 + 트랜잭션 시작 / 커밋)
+속성 조회는 AnnotationTransactionAttributeSource 의 attributeCache 에서 처리되므로 proxyTx 의 비용은 대부분 트랜잭션 시작 / 커밋임
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TxProxyCallBenchmark {
+
+    AnnotationConfigApplicationContext context;
+
+    BasicService plain;
+
+    BasicService proxy;
+
+    int counter;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(Config.class);
+
+        plain = new BasicService();
+        proxy = context.getBean(BasicService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int plainCall() {
+        return plain.nonTx(counter++);
+    }
+
+    @Benchmark
+    public int proxyNonTx() {
+        return proxy.nonTx(counter++);
+    }
+
+    @Benchmark
+    public int proxyTx() {
+        return proxy.tx(counter++);
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    public static class Config {
+
+        @Bean(destroyMethod = "close")
+        public HikariDataSource dataSource() {
+            return H2Fixture.dataSource("txProxyCall", 4);
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public BasicService basicService() {
+            return new BasicService();
+        }
+
+    }
+
+    public static class BasicService {
+
+        @Transactional
+        public int tx(int value) {
+            return value + 1;
+        }
+
+        public int nonTx(int value) {
+            return value + 1;
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.springtx.H2Fixture;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+SQL 없이 끝나는 트랜잭션이 섞인 부하에서 eager(트랜잭션 시작 시 커넥션 획득) / lazy(첫 SQL 시 획득) 비교
+- untouchedPercent : SQL 없이 커밋되는 트랜잭션 비율 (TxBasicTest.BasicService.tx() 처럼 일찍 반환되는 메서드)
+- 쓰레드 8개가 커넥션 4개짜리 풀을 나눠 쓰므로, 불필요한 커넥션 획득은 다른 트랜잭션의 풀 대기로 이어짐
+- Borrows.borrows / Borrows.ops : 트랜잭션 1회당 풀에서 가져간 커넥션 수
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class LazyConnectionBenchmark {
+
+    @Param({"eager", "lazy"})
+    String connectionMode;
+
+    @Param({"0", "50", "90"})
+    int untouchedPercent;
+
+    HikariDataSource pool;
+
+    EntityManagerFactory emf;
+
+    JpaTransactionManager transactionManager;
+
+    // 벤치마크 쓰레드별로 풀에서 가져간 커넥션 수
+
+    final ThreadLocal<long[]> borrows = ThreadLocal.withInitial(() -> new long[1]);
+
+    final DefaultTransactionAttribute required = new DefaultTransactionAttribute();
+
+    @Setup
+    public void setUp() {
+        pool = H2Fixture.dataSource("lazyConnection_" + connectionMode + "_" + untouchedPercent, 4);
+        DataSource counting = new DelegatingDataSource(pool) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                borrows.get()[0]++;
+                return super.getConnection();
+            }
+        };
+        DataSource dataSource = "lazy".equals(connectionMode) ? new LazyConnectionDataSourceProxy(counting) : counting;
+        emf = H2Fixture.entityManagerFactory(dataSource);
+        transactionManager = new JpaTransactionManager(emf);
+    }
+
+    @TearDown
+    public void tearDown() {
+        emf.close();
+        pool.close();
+    }
+
+    @Benchmark
+    public Object mixed(Borrows counters) {
+        long[] threadBorrows = borrows.get();
+        long before = threadBorrows[0];
+        TransactionStatus status = transactionManager.getTransaction(required);
+        Object result = null;
+        if (ThreadLocalRandom.current().nextInt(100) >= untouchedPercent) {
+            EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+            result = em.createNativeQuery("select 1").getSingleResult();
+        }
+        transactionManager.commit(status);
+        counters.borrows += threadBorrows[0] - before;
+        counters.ops++;
+        return result;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Borrows {
+
+        public long borrows;
+
+        public long ops;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            borrows = 0;
+            ops = 0;
+        }
+
+    }
+
+}
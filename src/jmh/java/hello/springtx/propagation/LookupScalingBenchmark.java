@@ -0,0 +1,82 @@
+package hello.springtx.propagation;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.springtx.H2Fixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+테이블 크기별 findByUsername 조회 지연시간 측정
+indexed=true 이면 idx_member_username 인덱스로 조회하므로 행 수가 늘어도 지연시간이 거의 일정해야 함
+indexed=false 이면 인덱스를 삭제하고 전체 스캔 (행 수에 비례해서 증가)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LookupScalingBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int rows;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    HikariDataSource dataSource;
+
+    EntityManagerFactory emf;
+
+    EntityManager em;
+
+    TransactionTemplate txTemplate;
+
+    @Setup
+    public void setUp() {
+        dataSource = H2Fixture.dataSource("lookupScaling_" + rows + "_" + indexed, 4);
+        emf = H2Fixture.entityManagerFactory(dataSource);
+        em = SharedEntityManagerCreator.createSharedEntityManager(emf);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (!indexed) {
+            jdbcTemplate.execute("drop index idx_member_username");
+        }
+        jdbcTemplate.update("insert into member (id, username, version) select x, concat('member_', x), 0 from system_range(1, ?)", rows);
+
+        txTemplate = new TransactionTemplate(new JpaTransactionManager(emf));
+        txTemplate.setReadOnly(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        emf.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Optional<Member> findByUsername() {
+        String username = "member_" + ThreadLocalRandom.current().nextInt(1, rows + 1);
+        return txTemplate.execute(status -> em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username)
+                .setMaxResults(1)
+                .getResultList()
+                .stream()
+                .findFirst());
+    }
+
+}
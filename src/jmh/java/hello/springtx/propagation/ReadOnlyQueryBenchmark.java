@@ -0,0 +1,82 @@
+package hello.springtx.propagation;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.springtx.H2Fixture;
+import hello.springtx.support.ReadOnlyQueries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+대량 조회 시 관리 엔티티(스냅샷 보관 + flush 시 dirty checking) 와 읽기 전용 조회 비교
+gc 프로파일러의 gc.alloc.rate.norm 으로 1회 조회당 할당량을 비교함
+- managed  : 쓰기 트랜잭션 + 힌트 없음 (커밋 시 rows 개의 엔티티 dirty checking)
+- readOnly : readOnly 트랜잭션 + READ_ONLY / FETCH_SIZE 힌트
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadOnlyQueryBenchmark {
+
+    @Param({"10000", "50000"})
+    int rows;
+
+    @Param({"managed", "readOnly"})
+    String mode;
+
+    HikariDataSource dataSource;
+
+    EntityManagerFactory emf;
+
+    EntityManager em;
+
+    TransactionTemplate txTemplate;
+
+    @Setup
+    public void setUp() {
+        dataSource = H2Fixture.dataSource("readOnlyQuery_" + rows + "_" + mode, 4);
+        emf = H2Fixture.entityManagerFactory(dataSource);
+        em = SharedEntityManagerCreator.createSharedEntityManager(emf);
+
+        new JdbcTemplate(dataSource).update(
+                "insert into member (id, username, version) select x, concat('member_', x), 0 from system_range(1, ?)", rows);
+
+        txTemplate = new TransactionTemplate(new JpaTransactionManager(emf));
+        txTemplate.setReadOnly("readOnly".equals(mode));
+    }
+
+    @TearDown
+    public void tearDown() {
+        emf.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int findAll() {
+        return txTemplate.execute(status -> {
+            TypedQuery<Member> query = em.createQuery("select m from Member m", Member.class);
+            if ("readOnly".equals(mode)) {
+                ReadOnlyQueries.readOnly(query);
+            }
+            List<Member> members = query.getResultList();
+            return members.size();
+        });
+    }
+
+}
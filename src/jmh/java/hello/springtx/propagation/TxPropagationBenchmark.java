@@ -0,0 +1,112 @@
+package hello.springtx.propagation;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.springtx.H2Fixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+BasicTxPropagationTest의 전파 시나리오별 비용 측정 (ops/sec, gc 프로파일러의 gc.alloc.rate.norm = 1회당 할당량)
+- single       : 트랜잭션 하나 시작 / 커밋 (기준값)
+- requiredJoin : 외부 트랜잭션에 내부 트랜잭션이 참여 (물리 트랜잭션 1개)
+- requiresNew  : 내부 트랜잭션이 외부 트랜잭션을 보류(suspend)하고 새 커넥션으로 시작 후 재개(resume)
+- rollbackOnly : 내부 롤백으로 rollbackOnly 마킹 -> 외부 커밋 시 UnexpectedRollbackException
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TxPropagationBenchmark {
+
+    @Param({"dataSource", "jpa"})
+    String transactionManagerType;
+
+    HikariDataSource dataSource;
+
+    EntityManagerFactory emf;
+
+    PlatformTransactionManager transactionManager;
+
+    final DefaultTransactionAttribute required = new DefaultTransactionAttribute();
+
+    final DefaultTransactionAttribute requiresNew = new DefaultTransactionAttribute(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    @Setup
+    public void setUp() {
+        dataSource = H2Fixture.dataSource("txPropagation_" + transactionManagerType, 10);
+        if ("jpa".equals(transactionManagerType)) {
+            emf = H2Fixture.entityManagerFactory(dataSource);
+            transactionManager = new JpaTransactionManager(emf);
+        } else {
+            transactionManager = new DataSourceTransactionManager(dataSource);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (emf != null) {
+            emf.close();
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void single() {
+        TransactionStatus status = transactionManager.getTransaction(required);
+        transactionManager.commit(status);
+    }
+
+    @Benchmark
+    public void requiredJoin() {
+        TransactionStatus outerStatus = transactionManager.getTransaction(required);
+        TransactionStatus innerStatus = transactionManager.getTransaction(required);
+        transactionManager.commit(innerStatus);
+        transactionManager.commit(outerStatus);
+    }
+
+    @Benchmark
+    public void requiresNew() {
+        TransactionStatus outerStatus = transactionManager.getTransaction(required);
+        TransactionStatus innerStatus = transactionManager.getTransaction(requiresNew);
+        transactionManager.commit(innerStatus);
+        transactionManager.commit(outerStatus);
+    }
+
+    @Benchmark
+    public void requiresNewInnerRollback() {
+        TransactionStatus outerStatus = transactionManager.getTransaction(required);
+        TransactionStatus innerStatus = transactionManager.getTransaction(requiresNew);
+        transactionManager.rollback(innerStatus);
+        transactionManager.commit(outerStatus);
+    }
+
+    @Benchmark
+    public void rollbackOnly(Blackhole blackhole) {
+        TransactionStatus outerStatus = transactionManager.getTransaction(required);
+        TransactionStatus innerStatus = transactionManager.getTransaction(required);
+        transactionManager.rollback(innerStatus);
+        try {
+            transactionManager.commit(outerStatus);
+        } catch (UnexpectedRollbackException e) {
+            blackhole.consume(e);
+        }
+    }
+
+}
@@ -0,0 +1,311 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+Hikari 풀 앞에서 쓰레드별로 잡고 있는 커넥션 수를 세서, 한 쓰레드가 커넥션을 두 개 이상 요구하는 상황(중첩 요청)을 감지함.
+REQUIRES_NEW 는 바깥 트랜잭션의 커넥션을 쥔 채로 새 커넥션을 요청하므로, 풀 크기만큼의 요청이 동시에 바깥 트랜잭션을 시작하면
+모두가 서로의 커넥션 반납을 기다리다 connectionTimeout 으로 실패함 (풀 데드락).
+- WARN      : 중첩 요청 시점에 풀에 남은 커넥션이 없으면 트랜잭션 이름과 풀 상태를 경고
+- FAIL_FAST : 같은 상황에서 connectionTimeout 을 기다리지 않고 바로 SQLTransientConnectionException
+- RESERVE   : 바깥 요청은 세마포어로 (풀 크기 - reserve) 개까지만 커넥션을 가질 수 있으므로 중첩 요청은 항상 남은 커넥션을 얻음
+
+누수 감지
+Hikari 의 leakDetectionThreshold 는 커넥션을 가져간 스택만 보여주므로, 커넥션을 사용하는 시점의 트랜잭션 이름을 함께 기록해서 보고함.
+트랜잭션 매니저는 커넥션을 얻은 뒤에 트랜잭션 이름을 동기화 매니저에 등록하므로, 이름은 커넥션을 처음 사용하는 시점마다 확인함.
+ */
+@Slf4j
+public class ConnectionGuardDataSource extends DelegatingDataSource {
+
+    private final String name;
+
+    private final HikariDataSource pool;
+
+    private final ConnectionGuardProperties properties;
+
+    private final ThreadLocal<int[]> held = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Nullable
+    private final Semaphore outerPermits;
+
+    private final Map<Lease, Boolean> leases = new ConcurrentHashMap<>();
+
+    @Nullable
+    private final ScheduledExecutorService leakDetector;
+
+    @Nullable
+    private final Timer waitTimer;
+
+    @Nullable
+    private final Timer usageTimer;
+
+    @Nullable
+    private final Counter nestedCounter;
+
+    public ConnectionGuardDataSource(String name, HikariDataSource pool, ConnectionGuardProperties properties, @Nullable MeterRegistry registry) {
+        super(pool);
+        this.name = name;
+        this.pool = pool;
+        this.properties = properties;
+        this.outerPermits = properties.getMode() == ConnectionGuardProperties.Mode.RESERVE
+                ? new Semaphore(Math.max(1, pool.getMaximumPoolSize() - properties.getReserve()), true)
+                : null;
+
+        if (registry != null) {
+            this.waitTimer = Timer.builder("datasource.guard.wait").tag("pool", name)
+                    .description("time to get a connection, including the RESERVE permit")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.usageTimer = Timer.builder("datasource.guard.usage").tag("pool", name)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.nestedCounter = Counter.builder("datasource.guard.nested").tag("pool", name)
+                    .description("connections requested by a thread that already holds one")
+                    .register(registry);
+        } else {
+            this.waitTimer = null;
+            this.usageTimer = null;
+            this.nestedCounter = null;
+        }
+
+        Duration threshold = properties.getLeakDetectionThreshold();
+        if (threshold != null && !threshold.isZero()) {
+            long periodMillis = Math.max(100, threshold.toMillis() / 2);
+            this.leakDetector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "connection-leak-detector-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.leakDetector.scheduleAtFixedRate(this::reportLeaks, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.leakDetector = null;
+        }
+    }
+
+    public HikariDataSource getPool() {
+        return pool;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return guard(pool::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return guard(() -> pool.getConnection(username, password));
+    }
+
+    /**
+     * leakDetectionThreshold 이상 반납되지 않은 커넥션 목록
+     */
+    public List<LeakReport> leaks() {
+        long now = System.nanoTime();
+        long thresholdNanos = properties.getLeakDetectionThreshold().toNanos();
+        List<LeakReport> reports = new ArrayList<>();
+        for (Lease lease : leases.keySet()) {
+            long heldNanos = now - lease.acquiredNanos;
+            if (heldNanos >= thresholdNanos) {
+                reports.add(new LeakReport(lease.transactionName, lease.threadName, Duration.ofNanos(heldNanos)));
+            }
+        }
+        return reports;
+    }
+
+    // 누수 감지 쓰레드를 멈추고 풀을 닫음 (빈으로 등록된 경우 DataSourceDecoratingPostProcessor 가 호출)
+    public void destroy() {
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+        pool.close();
+    }
+
+    private Connection guard(ConnectionSupplier supplier) throws SQLException {
+        int[] counter = held.get();
+        boolean nested = counter[0] > 0;
+        long start = System.nanoTime();
+
+        if (nested) {
+            onNested();
+        } else if (outerPermits != null) {
+            acquireOuterPermit();
+        }
+
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            if (!nested && outerPermits != null) {
+                outerPermits.release();
+            }
+            throw e;
+        }
+        long acquired = System.nanoTime();
+        if (waitTimer != null) {
+            waitTimer.record(acquired - start, TimeUnit.NANOSECONDS);
+        }
+
+        counter[0]++;
+        Lease lease = new Lease(counter, !nested && outerPermits != null, Thread.currentThread().getName(), acquired);
+        leases.put(lease, Boolean.TRUE);
+        return (Connection) Proxy.newProxyInstance(ConnectionGuardDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new GuardedConnection(connection, lease));
+    }
+
+    private void onNested() throws SQLException {
+        if (nestedCounter != null) {
+            nestedCounter.increment();
+        }
+        HikariPoolMXBean poolBean = pool.getHikariPoolMXBean();
+        if (poolBean == null || poolBean.getIdleConnections() > 0) {
+            return;
+        }
+        String message = String.format("이미 커넥션을 가진 쓰레드가 커넥션을 추가로 요청했지만 풀에 남은 커넥션이 없음. " +
+                        "tx=%s, pool=%s, active=%d, idle=%d, waiting=%d, max=%d",
+                TransactionSynchronizationManager.getCurrentTransactionName(), name,
+                poolBean.getActiveConnections(), poolBean.getIdleConnections(),
+                poolBean.getThreadsAwaitingConnection(), pool.getMaximumPoolSize());
+        if (properties.getMode() == ConnectionGuardProperties.Mode.FAIL_FAST) {
+            throw new SQLTransientConnectionException(message);
+        }
+        log.warn(message);
+    }
+
+    private void acquireOuterPermit() throws SQLException {
+        try {
+            if (!outerPermits.tryAcquire(pool.getConnectionTimeout(), TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(String.format(
+                        "%s - 바깥 트랜잭션용 커넥션을 얻지 못함 (reserve=%d, timeout=%dms)",
+                        name, properties.getReserve(), pool.getConnectionTimeout()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException(name + " - 커넥션 대기 중 인터럽트", e);
+        }
+    }
+
+    private void release(Lease lease) {
+        if (leases.remove(lease) == null) {
+            return; // 이미 반납됨
+        }
+        lease.counter[0]--;
+        if (lease.holdsPermit) {
+            outerPermits.release();
+        }
+        if (usageTimer != null) {
+            usageTimer.record(System.nanoTime() - lease.acquiredNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void reportLeaks() {
+        for (LeakReport leak : leaks()) {
+            log.warn("커넥션 누수 의심. tx={}, thread={}, held={}ms", leak.getTransactionName(), leak.getThreadName(), leak.getHeld().toMillis());
+        }
+    }
+
+    private class GuardedConnection implements InvocationHandler {
+
+        private final Connection target;
+
+        private final Lease lease;
+
+        GuardedConnection(Connection target, Lease lease) {
+            this.target = target;
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                case "close":
+                    release(lease);
+                    break;
+                default:
+                    if (lease.transactionName == null) {
+                        lease.transactionName = TransactionSynchronizationManager.getCurrentTransactionName();
+                    }
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+    }
+
+    private static class Lease {
+
+        final int[] counter;
+
+        final boolean holdsPermit;
+
+        final String threadName;
+
+        final long acquiredNanos;
+
+        volatile String transactionName;
+
+        Lease(int[] counter, boolean holdsPermit, String threadName, long acquiredNanos) {
+            this.counter = counter;
+            this.holdsPermit = holdsPermit;
+            this.threadName = threadName;
+            this.acquiredNanos = acquiredNanos;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+
+    @Value
+    public static class LeakReport {
+        @Nullable
+        String transactionName;
+        String threadName;
+        Duration held;
+    }
+
+}
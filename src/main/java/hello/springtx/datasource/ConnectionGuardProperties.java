@@ -0,0 +1,28 @@
+package hello.springtx.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("springtx.datasource.guard")
+public class ConnectionGuardProperties {
+
+    private boolean enabled = false;
+
+    private Mode mode = Mode.WARN;
+
+    // RESERVE 모드에서 중첩 요청(REQUIRES_NEW 등)용으로 남겨두는 커넥션 수
+    private int reserve = 1;
+
+    // 커넥션을 이 시간 이상 잡고 있으면 누수 의심으로 보고 (0 이면 사용 안 함)
+    private Duration leakDetectionThreshold = Duration.ofSeconds(10);
+
+    public enum Mode {
+        WARN,      // 이미 커넥션을 가진 쓰레드가 또 커넥션을 요청할 때 풀에 남은 커넥션이 없으면 경고
+        FAIL_FAST, // 같은 상황에서 풀 대기 없이 바로 실패
+        RESERVE    // 바깥 요청은 (풀 크기 - reserve) 개까지만 동시에 커넥션을 가질 수 있고, 중첩 요청은 reserve 를 사용
+    }
+
+}
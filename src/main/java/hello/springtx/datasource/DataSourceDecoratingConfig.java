@@ -0,0 +1,20 @@
+package hello.springtx.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DataSourceDecoratingConfig {
+
+    // BeanPostProcessor는 다른 빈보다 먼저 만들어져야 하므로 static 메서드로 등록
+    @Bean
+    public static DataSourceDecoratingPostProcessor dataSourceDecoratingPostProcessor(
+            ObjectProvider<ConnectionGuardProperties> guardProperties,
+            ObjectProvider<LazyConnectionProperties> lazyConnectionProperties,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new DataSourceDecoratingPostProcessor(guardProperties, lazyConnectionProperties, meterRegistry);
+    }
+
+}
@@ -0,0 +1,77 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/*
+컨테이너에 등록되는 HikariDataSource 빈(spring.datasource.* 로 만들어지는 기본 DataSource)을 감쌈.
+JPA, JdbcTemplate, 트랜잭션 매니저 모두 DataSource 빈을 통해 커넥션을 얻으므로 코드 변경 없이 적용됨.
+Hikari 지표(hikari.connections.*)는 DataSourceUnwrapper 로 감싸기 전의 풀을 찾아서 그대로 등록됨.
+
+LazyConnectionDataSourceProxy -> ConnectionGuardDataSource -> HikariDataSource
+- LazyConnectionDataSourceProxy : 트랜잭션 시작 시 받은 setAutoCommit / setReadOnly 등을 기록만 해두고,
+  첫 SQL 을 실행할 때 실제 커넥션을 가져와서 적용함. SQL 없이 끝나는 트랜잭션은 커밋 / 롤백도 커넥션 없이 끝남
+- ConnectionGuardDataSource 는 그 안쪽에 있으므로 실제로 풀에서 가져간 커넥션만 세고 감시함
+감싼 빈에는 close() 가 없어서 HikariDataSource 의 destroy 메서드 추론이 동작하지 않으므로, 종료 시 풀은 여기서 닫음.
+ */
+public class DataSourceDecoratingPostProcessor implements DestructionAwareBeanPostProcessor {
+
+    private final ObjectProvider<ConnectionGuardProperties> guardProperties;
+
+    private final ObjectProvider<LazyConnectionProperties> lazyConnectionProperties;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public DataSourceDecoratingPostProcessor(ObjectProvider<ConnectionGuardProperties> guardProperties,
+                                             ObjectProvider<LazyConnectionProperties> lazyConnectionProperties,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        this.guardProperties = guardProperties;
+        this.lazyConnectionProperties = lazyConnectionProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource)) {
+            return bean;
+        }
+        DataSource dataSource = (HikariDataSource) bean;
+
+        ConnectionGuardProperties guard = guardProperties.getObject();
+        if (guard.isEnabled()) {
+            dataSource = new ConnectionGuardDataSource(beanName, (HikariDataSource) bean, guard, meterRegistry.getIfAvailable());
+        }
+        if (lazyConnectionProperties.getObject().isEnabled()) {
+            dataSource = new LazyConnectionDataSourceProxy(dataSource);
+        }
+        return dataSource;
+    }
+
+    @Override
+    public boolean requiresDestruction(Object bean) {
+        Object target = unwrapLazy(bean);
+        return target instanceof ConnectionGuardDataSource || target != bean && target instanceof HikariDataSource;
+    }
+
+    @Override
+    public void postProcessBeforeDestruction(Object bean, String beanName) {
+        Object target = unwrapLazy(bean);
+        if (target instanceof ConnectionGuardDataSource) {
+            ((ConnectionGuardDataSource) target).destroy();
+        } else if (target instanceof HikariDataSource && target != bean) {
+            ((HikariDataSource) target).close();
+        }
+    }
+
+    private static Object unwrapLazy(Object bean) {
+        return bean instanceof LazyConnectionDataSourceProxy
+                ? ((LazyConnectionDataSourceProxy) bean).getTargetDataSource()
+                : bean;
+    }
+
+}
@@ -0,0 +1,13 @@
+package hello.springtx.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("springtx.datasource.lazy-connection")
+public class LazyConnectionProperties {
+
+    // 트랜잭션 시작 시점이 아니라 첫 SQL 실행 시점에 풀에서 커넥션을 가져옴
+    private boolean enabled = false;
+
+}
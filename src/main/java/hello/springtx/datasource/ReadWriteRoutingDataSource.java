@@ -0,0 +1,117 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import hello.springtx.datasource.RoutingDataSourceProperties.ReplicaSelection;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+읽기 전용 트랜잭션(@Transactional(readOnly = true))은 replica로, 나머지는 primary로 커넥션을 요청함.
+트랜잭션 매니저는 readOnly 여부를 동기화 매니저에 기록하기 전에 커넥션을 먼저 얻기 때문에,
+반드시 LazyConnectionDataSourceProxy로 감싸서 첫 SQL 실행 시점에 커넥션을 얻도록 해야 함.
+replica에 아직 없을 수 있는 데이터(방금 만든 로그 날짜 테이블 등)를 읽는 쪽은 usePrimaryForCurrentTransaction()으로
+읽기 전용 트랜잭션이어도 primary를 쓰게 할 수 있음 (트랜잭션이 아직 커넥션을 얻기 전에 호출해야 효과가 있음).
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final String PRIMARY = "primary";
+
+    // 현재 트랜잭션을 primary로 보내라는 표시 (트랜잭션 리소스로 바인딩)
+    private static final Object PRIMARY_ONLY = new Object();
+
+    private final HikariDataSource primary;
+
+    private final List<HikariDataSource> replicas;
+
+    private final ReplicaSelection selection;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, ReplicaSelection selection) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < this.replicas.size(); i++) {
+            targets.put(i, this.replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || TransactionSynchronizationManager.hasResource(PRIMARY_ONLY)) {
+            return PRIMARY;
+        }
+        return selection == ReplicaSelection.LEAST_CONNECTIONS ? leastConnections() : roundRobin();
+    }
+
+    /**
+     * 현재 트랜잭션이 읽기 전용이어도 primary 커넥션을 쓰게 한다. 트랜잭션이 끝나면 해제된다.
+     * 트랜잭션이 이미 replica 커넥션을 얻은 뒤라면 효과가 없다. 트랜잭션 밖이거나 라우팅을 쓰지 않으면 아무것도 하지 않는다.
+     */
+    public static void usePrimaryForCurrentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(PRIMARY_ONLY)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(PRIMARY_ONLY, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PRIMARY_ONLY);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(PRIMARY_ONLY, Boolean.TRUE);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PRIMARY_ONLY);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+
+    private int roundRobin() {
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    private int leastConnections() {
+        int selected = roundRobin(); // 부하가 같으면 순서대로 분산
+        int minLoad = load(selected);
+        for (int i = 0; i < replicas.size(); i++) {
+            int load = load(i);
+            if (load < minLoad) {
+                selected = i;
+                minLoad = load;
+            }
+        }
+        return selected;
+    }
+
+    private int load(int replicaIndex) {
+        HikariPoolMXBean pool = replicas.get(replicaIndex).getHikariPoolMXBean();
+        return pool != null ? pool.getActiveConnections() + pool.getThreadsAwaitingConnection() : 0;
+    }
+
+}
@@ -0,0 +1,45 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(prefix = "springtx.datasource.routing", name = "enabled")
+public class RoutingDataSourceConfig {
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(RoutingDataSourceProperties properties) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            replicas.add(pool("replica-" + i, properties.getReplicas().get(i)));
+        }
+        return new ReadWriteRoutingDataSource(pool("primary", properties.getPrimary()), replicas, properties.getSelection());
+    }
+
+    // JPA, JdbcTemplate, 트랜잭션 매니저는 모두 이 DataSource를 사용함
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private HikariDataSource pool(String name, RoutingDataSourceProperties.Pool properties) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(properties.getUrl());
+        config.setUsername(properties.getUsername());
+        config.setPassword(properties.getPassword());
+        config.setMaximumPoolSize(properties.getMaximumPoolSize());
+        return new HikariDataSource(config);
+    }
+
+}
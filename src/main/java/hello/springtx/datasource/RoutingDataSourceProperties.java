@@ -0,0 +1,34 @@
+package hello.springtx.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("springtx.datasource.routing")
+public class RoutingDataSourceProperties {
+
+    private boolean enabled;
+
+    private Pool primary = new Pool();
+
+    private List<Pool> replicas = new ArrayList<>();
+
+    private ReplicaSelection selection = ReplicaSelection.ROUND_ROBIN;
+
+    @Data
+    public static class Pool {
+        private String url;
+        private String username = "sa";
+        private String password = "";
+        private int maximumPoolSize = 10;
+    }
+
+    public enum ReplicaSelection {
+        ROUND_ROBIN,      // replica를 차례대로 사용
+        LEAST_CONNECTIONS // 사용 중 + 대기 중인 커넥션이 가장 적은 replica 사용
+    }
+
+}
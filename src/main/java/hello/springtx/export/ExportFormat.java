@@ -0,0 +1,6 @@
+package hello.springtx.export;
+
+public enum ExportFormat {
+    CSV,   // 첫 줄은 컬럼 이름, RFC 4180 방식으로 따옴표 처리
+    NDJSON // 한 줄에 JSON 객체 하나
+}
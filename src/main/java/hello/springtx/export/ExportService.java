@@ -0,0 +1,124 @@
+package hello.springtx.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import hello.springtx.propagation.Log;
+import hello.springtx.propagation.LogRepository;
+import hello.springtx.propagation.Member;
+import hello.springtx.propagation.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/*
+Member / Log 전체를 CSV 또는 NDJSON 으로 내보냄.
+읽기 전용 트랜잭션 하나에서 커서로 한 행씩 읽어서 바로 writer 에 쓰므로 목록을 메모리에 올리지 않음.
+(writer 는 호출한 쪽에서 BufferedWriter / 응답 스트림 등으로 넘겨줌)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private static final String[] MEMBER_COLUMNS = {"id", "username"};
+
+    private static final String[] LOG_COLUMNS = {"id", "message", "created_at"};
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final MemberRepository memberRepository;
+
+    private final LogRepository logRepository;
+
+    /**
+     * @return 내보낸 행 수
+     */
+    @Transactional(readOnly = true)
+    public long exportMembers(ExportFormat format, Writer writer) throws IOException {
+        try (Stream<Member> members = memberRepository.streamAll()) {
+            return write(format, writer, MEMBER_COLUMNS, members,
+                    member -> new Object[]{member.getId(), member.getUsername()});
+        }
+    }
+
+    /**
+     * @return 내보낸 행 수
+     */
+    @Transactional(readOnly = true)
+    public long exportLogs(ExportFormat format, Writer writer) throws IOException {
+        try (Stream<Log> logs = logRepository.streamAll()) {
+            return write(format, writer, LOG_COLUMNS, logs,
+                    logEntity -> new Object[]{logEntity.getId(), logEntity.getMessage(), logEntity.getCreatedAt()});
+        }
+    }
+
+    private <T> long write(ExportFormat format, Writer writer, String[] columns,
+                           Stream<T> rows, Function<T, Object[]> values) throws IOException {
+        long count = 0;
+        if (format == ExportFormat.CSV) {
+            writeCsvRow(writer, columns);
+            for (Iterator<T> it = rows.iterator(); it.hasNext(); count++) {
+                writeCsvRow(writer, values.apply(it.next()));
+            }
+        } else {
+            // generator 를 닫거나 flush 해도 writer 는 닫거나 flush 하지 않음 (호출한 쪽 소유)
+            JsonGenerator generator = JSON.createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            generator.setRootValueSeparator(null);
+            for (Iterator<T> it = rows.iterator(); it.hasNext(); count++) {
+                writeJsonRow(generator, columns, values.apply(it.next()));
+                generator.flush();
+                writer.write('\n');
+            }
+            generator.close();
+        }
+        writer.flush();
+        log.info("내보내기 완료. format={}, rows={}", format, count);
+        return count;
+    }
+
+    private static void writeCsvRow(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csv(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static void writeJsonRow(JsonGenerator generator, String[] columns, Object[] values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < columns.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                generator.writeNullField(columns[i]);
+            } else if (value instanceof Number) {
+                generator.writeNumberField(columns[i], ((Number) value).longValue());
+            } else {
+                generator.writeStringField(columns[i], value.toString());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+}
@@ -0,0 +1,29 @@
+package hello.springtx.order;
+
+import lombok.Data;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/*
+사용자별 잔고. 주문 결제 시 AccountRepository.withdraw 의 조건부 UPDATE 로만 차감하므로
+엔티티를 읽어서 수정하는 일이 없고 version 도 두지 않음.
+ */
+@Entity
+@Data
+public class Account {
+
+    @Id
+    private String username;
+
+    private long balance;
+
+    public Account() {
+    }
+
+    public Account(String username, long balance) {
+        this.username = username;
+        this.balance = balance;
+    }
+
+}
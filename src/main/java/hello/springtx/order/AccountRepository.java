@@ -0,0 +1,23 @@
+package hello.springtx.order;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/*
+잔고 확인과 차감을 조건부 UPDATE 한 문장으로 처리함 (잔고가 충분할 때만 바뀜, 반환값 0 / 1).
+- 읽고 나서 쓰는 사이에 다른 주문이 끼어들 틈이 없으므로 잔고가 음수가 되지 않음
+- 행 락은 그 계좌 행에만 잡히므로 서로 다른 사용자의 주문은 서로를 기다리지 않음
+- 영속성 컨텍스트의 주문 엔티티를 계속 수정해야 하므로 clearAutomatically 는 사용하지 않음 (Account 는 읽어두지 않음)
+ */
+public interface AccountRepository extends JpaRepository<Account, String> {
+
+    @Transactional
+    @Modifying
+    @Query("update Account a set a.balance = a.balance - :amount " +
+            "where a.username = :username and a.balance >= :amount")
+    int withdraw(@Param("username") String username, @Param("amount") long amount);
+
+}
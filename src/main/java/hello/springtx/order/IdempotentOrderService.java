@@ -0,0 +1,133 @@
+package hello.springtx.order;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import hello.springtx.tx.TransactionRetryExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+/*
+멱등 키를 받아서 같은 키의 주문은 한 번만 처리하고, 다시 요청하면 처음 결과(완료 / 대기 / 실패)를 돌려줌.
+- 키는 주문과 같은 트랜잭션에서 저장되므로 주문이 롤백되면 키도 남지 않고, 키가 있으면 주문도 커밋된 것
+- 같은 키로 동시에 들어온 요청은 키의 유니크 제약으로 하나만 커밋되고, 나머지는 롤백된 뒤 커밋된 결과를 돌려받음
+- 커밋된 결과는 메모리 캐시(크기 제한)에 담아두므로 재시도가 몰려도 DB 를 조회하지 않음
+  캐시에는 커밋 이후에만 넣으므로 롤백된 결과가 캐시를 통해 보이는 일은 없음
+- 시스템 예외로 주문이 롤백되면 실패 결과를 별도 트랜잭션으로 저장함 (같은 키로 재시도해도 다시 처리하지 않음)
+  단 락 타임아웃 / 데드락 / 직렬화 실패 같은 일시적인 실패와 커넥션 풀 대기 타임아웃은 저장하지 않음
+  -> 같은 키로 재시도하면 주문을 다시 처리함
+ */
+@Slf4j
+@Service
+public class IdempotentOrderService implements MeterBinder {
+
+    private final OrderService orderService;
+
+    private final OrderIdempotencyKeyRepository keyRepository;
+
+    private final TransactionTemplate txTemplate;
+
+    private final TransactionTemplate failureTxTemplate;
+
+    private final Cache<String, OrderReceipt> receipts;
+
+    public IdempotentOrderService(OrderService orderService, OrderIdempotencyKeyRepository keyRepository,
+                                  PlatformTransactionManager transactionManager, OrderIdempotencyProperties properties) {
+        this.orderService = orderService;
+        this.keyRepository = keyRepository;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.txTemplate.setName("IdempotentOrderService.order");
+        this.failureTxTemplate = new TransactionTemplate(transactionManager);
+        this.failureTxTemplate.setName("IdempotentOrderService.recordFailure");
+        this.failureTxTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.receipts = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterWrite(properties.getCacheTtl())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 처음 받은 키면 주문을 처리하고, 이미 처리한 키면 저장된 결과를 돌려준다.
+     * 시스템 예외는 처음 요청에만 그대로 던지고, 같은 키로 다시 요청하면 FAILED 결과를 돌려준다.
+     * 일시적인 실패는 결과를 남기지 않고 던지므로 같은 키로 다시 요청하면 주문을 다시 처리한다.
+     */
+    public OrderReceipt order(String idempotencyKey, Order order) {
+        OrderReceipt cached = receipts.getIfPresent(idempotencyKey);
+        if (cached != null) {
+            log.info("멱등 키 캐시 적중. key={}, outcome={}", idempotencyKey, cached.getOutcome());
+            return cached;
+        }
+
+        Optional<OrderReceipt> stored = findStored(idempotencyKey);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+
+        OrderReceipt receipt;
+        try {
+            receipt = txTemplate.execute(status -> place(idempotencyKey, order));
+        } catch (DataIntegrityViolationException e) {
+            // 같은 키로 동시에 들어온 다른 요청이 먼저 커밋함 -> 이 요청의 주문은 롤백됨
+            log.info("같은 멱등 키의 주문이 먼저 커밋됨. key={}", idempotencyKey);
+            return findStored(idempotencyKey).orElseThrow(() -> e);
+        } catch (RuntimeException e) {
+            if (TransactionRetryExecutor.isTransient(e) || TransactionRetryExecutor.isConnectionAcquisitionFailure(e)) {
+                log.info("일시적인 실패로 주문이 롤백됨, 결과를 남기지 않음. key={}", idempotencyKey);
+                throw e;
+            }
+            recordFailure(idempotencyKey);
+            throw e;
+        }
+        receipts.put(idempotencyKey, receipt);
+        return receipt;
+    }
+
+    public CacheStats stats() {
+        return receipts.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, receipts, "order.idempotency");
+    }
+
+    private OrderReceipt place(String idempotencyKey, Order order) {
+        OrderOutcome outcome;
+        try {
+            orderService.order(order);
+            outcome = OrderOutcome.COMPLETED;
+        } catch (NotEnoughMoneyException e) {
+            outcome = OrderOutcome.PENDING; // 대기 상태로 커밋됨
+        }
+        OrderIdempotencyKey key = new OrderIdempotencyKey(idempotencyKey, order.getId(), outcome);
+        keyRepository.insert(key);
+        return key.toReceipt();
+    }
+
+    private void recordFailure(String idempotencyKey) {
+        try {
+            OrderIdempotencyKey key = new OrderIdempotencyKey(idempotencyKey, null, OrderOutcome.FAILED);
+            failureTxTemplate.executeWithoutResult(status -> keyRepository.insert(key));
+            receipts.put(idempotencyKey, key.toReceipt());
+        } catch (DataIntegrityViolationException e) {
+            log.info("같은 멱등 키의 결과가 이미 저장됨. key={}", idempotencyKey);
+        }
+    }
+
+    private Optional<OrderReceipt> findStored(String idempotencyKey) {
+        Optional<OrderReceipt> stored = keyRepository.findByKey(idempotencyKey).map(OrderIdempotencyKey::toReceipt);
+        stored.ifPresent(receipt -> receipts.put(idempotencyKey, receipt));
+        return stored;
+    }
+
+}
@@ -4,20 +4,35 @@ import lombok.Data;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_username", columnList = "username"),
+        @Index(name = "idx_orders_pay_status_id", columnList = "payStatus, id") // 정산 작업의 대기 주문 keyset 조회
+})
 @Data
 public class Order {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq_generator")
+    @SequenceGenerator(name = "orders_seq_generator", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     private String username;
 
     private String payStatus;
 
+    // 결제 금액 (OrderService.order 는 0보다 큰 금액만 받음)
+    private Long amount;
+
+    // 동시에 결제 상태를 바꾸는 트랜잭션 중 나중에 커밋하는 쪽은 덮어쓰지 않고 OptimisticLockException 으로 실패함
+    @Version
+    private Long version;
+
 }
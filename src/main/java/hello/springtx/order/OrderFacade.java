@@ -0,0 +1,31 @@
+package hello.springtx.order;
+
+import hello.springtx.tx.TransactionRetryExecutor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/*
+OrderService.order 트랜잭션을 락 타임아웃 / 데드락 / 낙관적 락 충돌 시 다시 실행함.
+롤백된 시도에서 할당된 id / version 이 남아있으면 다음 시도의 save()가 persist 대신 merge 로 동작하므로 시도마다 초기화함.
+잔고 부족(NotEnoughMoneyException)은 재시도하지 않고 커밋된 상태로 그대로 던짐.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderFacade {
+
+    private final OrderService orderService;
+
+    private final TransactionRetryExecutor retryExecutor;
+
+    public void order(Order order) throws NotEnoughMoneyException {
+        retryExecutor.execute("OrderService.order", () -> {
+            order.setId(null);
+            order.setVersion(null);
+            orderService.order(order);
+            return null;
+        });
+    }
+
+}
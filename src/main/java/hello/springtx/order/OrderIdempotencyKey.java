@@ -0,0 +1,44 @@
+package hello.springtx.order;
+
+import lombok.Data;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/*
+클라이언트가 보낸 멱등 키와 주문 결과. 키가 기본 키(유니크 인덱스)이므로 같은 키로 동시에 들어온 주문 중 하나만 커밋됨.
+ */
+@Entity
+@Table(name = "order_idempotency_key")
+@Data
+public class OrderIdempotencyKey {
+
+    @Id
+    private String idempotencyKey;
+
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    private OrderOutcome outcome;
+
+    private LocalDateTime createdAt;
+
+    public OrderIdempotencyKey() {
+    }
+
+    public OrderIdempotencyKey(String idempotencyKey, Long orderId, OrderOutcome outcome) {
+        this.idempotencyKey = idempotencyKey;
+        this.orderId = orderId;
+        this.outcome = outcome;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public OrderReceipt toReceipt() {
+        return new OrderReceipt(idempotencyKey, orderId, outcome);
+    }
+
+}
@@ -0,0 +1,32 @@
+package hello.springtx.order;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderIdempotencyKeyRepository {
+
+    private final EntityManager em;
+
+    /*
+    키가 이미 있으면 DataIntegrityViolationException.
+    id 를 직접 지정한 엔티티는 Spring Data 의 save() 가 merge(select + insert)로 처리하므로 persist 를 직접 호출하고,
+    유니크 제약 위반이 커밋 시점이 아니라 여기서 드러나도록 바로 flush 함.
+     */
+    @Transactional
+    public void insert(OrderIdempotencyKey key) {
+        em.persist(key);
+        em.flush();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<OrderIdempotencyKey> findByKey(String idempotencyKey) {
+        return Optional.ofNullable(em.find(OrderIdempotencyKey.class, idempotencyKey));
+    }
+
+}
@@ -0,0 +1,18 @@
+package hello.springtx.order;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("springtx.order.idempotency")
+public class OrderIdempotencyProperties {
+
+    // 메모리에 담아둘 최대 키 수 (넘치면 오래 사용되지 않은 키부터 제거되고, 제거된 키는 DB 에서 다시 조회함)
+    private long cacheSize = 10_000;
+
+    // 클라이언트가 재시도할 수 있는 기간보다 길게 잡음
+    private Duration cacheTtl = Duration.ofHours(1);
+
+}
@@ -0,0 +1,19 @@
+package hello.springtx.order;
+
+public enum OrderOutcome {
+
+    COMPLETED("완료"), // 결제 완료
+    PENDING("대기"),   // 잔고 부족으로 대기 상태로 커밋됨
+    FAILED("실패");    // 시스템 예외로 주문이 롤백됨
+
+    private final String payStatus;
+
+    OrderOutcome(String payStatus) {
+        this.payStatus = payStatus;
+    }
+
+    public String getPayStatus() {
+        return payStatus;
+    }
+
+}
@@ -0,0 +1,16 @@
+package hello.springtx.order;
+
+import lombok.Value;
+
+// 멱등 키로 저장된 주문 결과. 같은 키로 다시 요청하면 이 결과를 그대로 돌려줌
+@Value
+public class OrderReceipt {
+
+    String idempotencyKey;
+
+    // FAILED 면 null
+    Long orderId;
+
+    OrderOutcome outcome;
+
+}
@@ -1,6 +1,35 @@
 package hello.springtx.order;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
+/*
+결제 상태 전이(compareAndSetPayStatus)는 엔티티를 읽어서 수정하고 flush 하는 대신 조건부 UPDATE 한 번으로 처리함.
+- 조건(현재 상태, version)이 맞는 행만 바뀌고 version 이 증가하므로, 동시에 같은 주문을 처리해도 한 쪽만 성공함 (반환값 0 / 1)
+- 벌크 UPDATE 는 영속성 컨텍스트를 거치지 않으므로 clearAutomatically 로 이미 읽어둔 엔티티가 옛 상태로 남지 않게 함
+ */
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+    List<Order> findByUsernameAndPayStatus(String username, String payStatus);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Order o set o.payStatus = :to, o.version = o.version + 1 " +
+            "where o.id = :id and o.version = :version and o.payStatus = :from")
+    int compareAndSetPayStatus(@Param("id") Long id, @Param("version") Long version,
+                               @Param("from") String from, @Param("to") String to);
+
+    // 비교용: 행 락(select ... for update)을 잡고 읽은 뒤 수정
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
 }
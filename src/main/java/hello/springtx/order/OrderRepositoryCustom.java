@@ -0,0 +1,11 @@
+package hello.springtx.order;
+
+import java.util.Collection;
+
+public interface OrderRepositoryCustom {
+
+    void saveAllInBatch(Collection<Order> orders);
+
+    void saveAllInBatch(Collection<Order> orders, int batchSize);
+
+}
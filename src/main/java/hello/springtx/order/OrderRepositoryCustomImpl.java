@@ -0,0 +1,38 @@
+package hello.springtx.order;
+
+import hello.springtx.support.JpaBatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+
+/*
+JpaRepository.saveAll()은 엔티티마다 save()를 호출할 뿐 flush/clear를 하지 않으므로,
+수십만 건을 저장하면 영속성 컨텍스트가 계속 커짐. 대량 저장은 saveAllInBatch()를 사용함.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    private final EntityManager em;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public void saveAllInBatch(Collection<Order> orders) {
+        saveAllInBatch(orders, batchSize);
+    }
+
+    @Override
+    @Transactional
+    public void saveAllInBatch(Collection<Order> orders, int batchSize) {
+        log.info("order 일괄 저장. size={}, batchSize={}", orders.size(), batchSize);
+        JpaBatch.persistAll(em, orders, batchSize);
+    }
+
+}
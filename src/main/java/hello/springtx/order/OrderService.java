@@ -1,20 +1,44 @@
 package hello.springtx.order;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import hello.springtx.outbox.OutboxEvent;
+import hello.springtx.outbox.OutboxEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/*
+대기 -> 완료 전이는 모두 잔고 차감(AccountRepository.withdraw)과 같은 트랜잭션에서 일어남.
+대기는 "잔고가 부족해서 결제하지 못함" 이므로 차감 없이 완료로 바꾸면 결제되지 않은 주문이 완료됨.
+차감에 실패하면(잔고 부족) 주문은 대기로 남음.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
+    private static final JsonFactory JSON = new JsonFactory();
+
     private final OrderRepository orderRepository;
 
+    private final AccountRepository accountRepository;
+
+    private final OutboxEventRepository outboxEventRepository;
+
     @Transactional
     public void order(Order order) throws NotEnoughMoneyException {
         log.info("order() 호출");
+        // 금액이 없거나 0 이하인 주문은 잔고 차감 없이 완료되므로 저장하기 전에 거부함
+        if (order.getAmount() == null || order.getAmount() <= 0) {
+            throw new IllegalArgumentException("결제 금액은 0보다 커야 함. amount=" + order.getAmount());
+        }
         orderRepository.save(order);
 
         log.info("결제 프로세스 시작");
@@ -22,16 +46,104 @@ public class OrderService {
         if (order.getUsername().equals("예외")) {
             log.info("시스템 예외 발생");
             throw new RuntimeException("시스템 예외");
-        } else if (order.getUsername().equals("잔고부족")) {
+        } else if (!pay(order)) {
             log.info("잔고 부족 비즈니스 예외 발생");
             order.setPayStatus("대기");
+            publish(order); // 체크 예외는 커밋되므로 대기 이벤트도 같이 커밋됨
             throw new NotEnoughMoneyException("잔고부족");
         } else {
             log.info("정상 승인");
             order.setPayStatus("완료");
+            publish(order);
         }
 
         log.info("결제 프로세스 완료");
     }
 
+    /**
+     * 사용자의 대기 중인 주문을 하나씩 결제해서 완료 처리하고, 완료된 주문 수를 반환한다.
+     * 잔고가 부족한 주문은 대기로 남는다. 그 사이 다른 트랜잭션이 같은 주문을 바꿨다면
+     * 커밋 시 낙관적 락 예외로 전체가 롤백되어 차감도 함께 취소된다.
+     */
+    @Transactional
+    public int completePendingOrders(String username) {
+        int completed = 0;
+        for (Order order : orderRepository.findByUsernameAndPayStatus(username, "대기")) {
+            if (settle(order)) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * 조회했던 version 그대로일 때만 대기 -> 완료로 바꾸고 잔고를 차감한다.
+     * 그 사이 다른 트랜잭션이 바꿨거나 잔고가 부족하면 false (잔고 부족이면 상태 변경도 롤백되어 대기로 남음).
+     */
+    @Transactional
+    public boolean completePayment(Long orderId, Long version) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        // 상태 전이를 먼저 해서 같은 주문을 동시에 처리하는 트랜잭션 중 한 쪽만 차감까지 진행함
+        if (order == null || orderRepository.compareAndSetPayStatus(orderId, version, "대기", "완료") == 0) {
+            return false;
+        }
+        if (!pay(order)) {
+            log.info("잔고 부족으로 대기 유지. orderId={}", orderId);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+        order.setPayStatus("완료"); // clearAutomatically 로 준영속 상태이므로 이벤트 내용에만 사용됨
+        publish(order);
+        return true;
+    }
+
+    /**
+     * 비교용: 행 락을 잡고 대기 -> 완료로 바꾼다. 락을 기다리는 동안 커넥션과 트랜잭션을 계속 점유함.
+     */
+    @Transactional
+    public boolean completePaymentWithLock(Long orderId) {
+        return settle(orderRepository.findByIdForUpdate(orderId).orElseThrow());
+    }
+
+    /**
+     * 영속 상태의 대기 주문을 결제해서 완료로 바꾼다. 호출한 트랜잭션 안에서 잔고를 차감하고 엔티티 상태를 바꾸므로
+     * 커밋 시 함께 반영되고, 롤백되면 차감도 롤백된다. 대기가 아니거나 잔고가 부족하면 바꾸지 않고 false.
+     */
+    @Transactional
+    public boolean settle(Order order) {
+        if (!"대기".equals(order.getPayStatus()) || !pay(order)) {
+            return false;
+        }
+        order.setPayStatus("완료");
+        publish(order);
+        return true;
+    }
+
+    // 잔고가 충분하면 차감하고 true. 주문과 같은 트랜잭션이므로 주문이 롤백되면 차감도 롤백됨
+    // (금액이 없는 주문은 결제할 수 없음)
+    private boolean pay(Order order) {
+        return order.getAmount() != null && accountRepository.withdraw(order.getUsername(), order.getAmount()) == 1;
+    }
+
+    // 주문과 같은 트랜잭션에서 아웃박스에 저장 (롤백되면 이벤트도 없음, 발행은 OutboxRelay 가 커밋 이후에 함)
+    private void publish(Order order) {
+        outboxEventRepository.save(new OutboxEvent("Order", String.valueOf(order.getId()),
+                "order." + order.getPayStatus(), payload(order)));
+    }
+
+    // ReactiveOrderService 도 같은 형식으로 발행함
+    static String payload(Order order) {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = JSON.createGenerator(json)) {
+            generator.writeStartObject();
+            generator.writeNumberField("orderId", order.getId());
+            generator.writeStringField("username", order.getUsername());
+            generator.writeStringField("payStatus", order.getPayStatus());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+
 }
@@ -0,0 +1,44 @@
+package hello.springtx.order;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/*
+AccountRepository 의 R2DBC 버전 (같은 account 테이블). 잔고 확인과 차감을 조건부 UPDATE 한 문장으로 처리함 (반환값 0 / 1).
+ReactiveOrderService 의 TransactionalOperator 안에서 호출하면 주문과 같은 트랜잭션에서 차감되고 함께 롤백됨.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveAccountRepository {
+
+    private final DatabaseClient reactiveOrderDatabaseClient;
+
+    public Mono<Integer> withdraw(String username, long amount) {
+        return reactiveOrderDatabaseClient
+                .sql("update account set balance = balance - :amount where username = :username and balance >= :amount")
+                .bind("username", username)
+                .bind("amount", amount)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // 계좌가 없으면 만들고 있으면 잔고를 덮어씀
+    public Mono<Account> save(Account account) {
+        return reactiveOrderDatabaseClient
+                .sql("merge into account (username, balance) key (username) values (:username, :balance)")
+                .bind("username", account.getUsername())
+                .bind("balance", account.getBalance())
+                .then()
+                .thenReturn(account);
+    }
+
+    public Mono<Long> findBalance(String username) {
+        return reactiveOrderDatabaseClient.sql("select balance from account where username = :username")
+                .bind("username", username)
+                .map(row -> row.get("balance", Long.class))
+                .one();
+    }
+
+}
@@ -0,0 +1,68 @@
+package hello.springtx.order;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+
+/*
+ReactiveOrderService 용 R2DBC 설정
+R2DBC 는 JPA 쪽과 같은 데이터베이스를 사용함. (주문 / 계좌 / 아웃박스 테이블을 함께 씀)
+- springtx.order.reactive.url 이 없으면 spring.datasource 의 H2 메모리 DB URL 을 R2DBC URL 로 바꿔서 사용함
+  (같은 JVM 에서 같은 이름의 H2 메모리 DB 는 하나이고, DB_CLOSE_DELAY=-1 이라 커넥션이 없어도 유지됨)
+- 테이블은 Hibernate 가 만들므로 EntityManagerFactory 이후에 풀을 만듦
+- 다른 DB 이거나 라우팅(springtx.datasource.routing)을 켠 경우에는 springtx.order.reactive.url 로 primary 를 지정해야 함
+ConnectionFactory / R2dbcTransactionManager 는 그 타입의 빈으로 등록하지 않음.
+- ConnectionFactory 빈이 있으면 DataSourceAutoConfiguration 이 동작하지 않아 JPA 쪽 DataSource 가 만들어지지 않음
+  -> 풀은 ConnectionFactory 가 아닌 ReactiveOrderConnectionPool 빈으로 등록하고 컨텍스트 종료 시 dispose 함
+- TransactionManager 빈이 두 개가 되면 @Transactional 이 기본 트랜잭션 매니저를 고르지 못함
+같은 이유로 R2dbcAutoConfiguration / R2dbcTransactionManagerAutoConfiguration 은 application.properties 에서 제외함.
+ */
+@Configuration
+public class ReactiveOrderConfig {
+
+    private static final String H2_MEM_PREFIX = "jdbc:h2:mem:";
+
+    @Bean(destroyMethod = "dispose")
+    @DependsOn("entityManagerFactory")
+    public ReactiveOrderConnectionPool reactiveOrderConnectionPool(
+            DataSourceProperties dataSourceProperties,
+            @Value("${springtx.order.reactive.url:}") String url,
+            @Value("${springtx.order.reactive.pool.max-size:10}") int maxSize,
+            @Value("${springtx.order.reactive.pool.max-idle-time:30m}") Duration maxIdleTime) {
+        String r2dbcUrl = StringUtils.hasText(url) ? url : toR2dbcUrl(dataSourceProperties.determineUrl());
+        return new ReactiveOrderConnectionPool(r2dbcUrl, maxSize, maxIdleTime);
+    }
+
+    @Bean
+    public DatabaseClient reactiveOrderDatabaseClient(ReactiveOrderConnectionPool pool) {
+        return DatabaseClient.create(pool.getConnectionFactory());
+    }
+
+    @Bean
+    public TransactionalOperator reactiveOrderTransactionalOperator(ReactiveOrderConnectionPool pool) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(pool.getConnectionFactory()));
+    }
+
+    // jdbc:h2:mem:name;DB_CLOSE_DELAY=-1 -> r2dbc:h2:mem:///name?options=DB_CLOSE_DELAY=-1
+    static String toR2dbcUrl(String jdbcUrl) {
+        if (jdbcUrl == null || !jdbcUrl.startsWith(H2_MEM_PREFIX)) {
+            throw new IllegalStateException("H2 메모리 DB 가 아니면 springtx.order.reactive.url 을 지정해야 함. url=" + jdbcUrl);
+        }
+        String nameAndOptions = jdbcUrl.substring(H2_MEM_PREFIX.length());
+        int separator = nameAndOptions.indexOf(';');
+        if (separator < 0) {
+            return "r2dbc:h2:mem:///" + nameAndOptions;
+        }
+        return "r2dbc:h2:mem:///" + nameAndOptions.substring(0, separator)
+                + "?options=" + nameAndOptions.substring(separator + 1);
+    }
+
+}
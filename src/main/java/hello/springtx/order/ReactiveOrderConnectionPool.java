@@ -0,0 +1,38 @@
+package hello.springtx.order;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+
+import java.time.Duration;
+
+/*
+ReactiveOrderService 용 R2DBC 커넥션 풀
+ConnectionFactory 를 구현하지 않고 감싸기만 함.
+ConnectionFactory 타입의 빈이 있으면 DataSourceAutoConfiguration 이 동작하지 않아 JPA 쪽 DataSource 가 만들어지지 않기 때문.
+풀은 컨텍스트가 닫힐 때 dispose() 로 정리됨 (ReactiveOrderConfig 의 destroyMethod)
+ */
+public class ReactiveOrderConnectionPool {
+
+    private final ConnectionPool pool;
+
+    public ReactiveOrderConnectionPool(String url, int maxSize, Duration maxIdleTime) {
+        ConnectionPoolConfiguration configuration = ConnectionPoolConfiguration.builder(ConnectionFactories.get(url))
+                .name("reactiveOrder")
+                .initialSize(1)
+                .maxSize(maxSize)
+                .maxIdleTime(maxIdleTime)
+                .build();
+        this.pool = new ConnectionPool(configuration);
+    }
+
+    public ConnectionFactory getConnectionFactory() {
+        return pool;
+    }
+
+    public void dispose() {
+        pool.dispose();
+    }
+
+}
@@ -0,0 +1,68 @@
+package hello.springtx.order;
+
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/*
+OrderRepository 와 같은 orders 테이블을 R2DBC 로 읽고 씀.
+id 는 orders_seq 에서 값 하나를 받아서 씀 (pooled-lo 라서 Hibernate 는 자기가 받은 값부터 allocationSize 만큼만 쓰므로 겹치지 않음)
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveOrderRepository {
+
+    private final DatabaseClient reactiveOrderDatabaseClient;
+
+    public Mono<Order> save(Order order) {
+        return reactiveOrderDatabaseClient.sql("select next value for orders_seq")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> bindPayStatus(reactiveOrderDatabaseClient
+                        .sql("insert into orders (id, username, pay_status, amount, version) values (:id, :username, :payStatus, :amount, 0)")
+                        .bind("id", id)
+                        .bind("username", order.getUsername())
+                        .bind("amount", order.getAmount()), order.getPayStatus())
+                        .then()
+                        .then(Mono.fromCallable(() -> {
+                            order.setId(id);
+                            order.setVersion(0L);
+                            return order;
+                        })));
+    }
+
+    public Mono<Order> updatePayStatus(Order order) {
+        return bindPayStatus(reactiveOrderDatabaseClient
+                .sql("update orders set pay_status = :payStatus, version = version + 1 where id = :id")
+                .bind("id", order.getId()), order.getPayStatus())
+                .then()
+                .then(Mono.fromCallable(() -> {
+                    order.setVersion(order.getVersion() + 1);
+                    return order;
+                }));
+    }
+
+    public Mono<Order> findById(Long id) {
+        return reactiveOrderDatabaseClient.sql("select id, username, pay_status, amount, version from orders where id = :id")
+                .bind("id", id)
+                .map(ReactiveOrderRepository::toOrder)
+                .one();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindPayStatus(DatabaseClient.GenericExecuteSpec spec, String payStatus) {
+        return payStatus != null ? spec.bind("payStatus", payStatus) : spec.bindNull("payStatus", String.class);
+    }
+
+    private static Order toOrder(Row row) {
+        Order order = new Order();
+        order.setId(row.get("id", Long.class));
+        order.setUsername(row.get("username", String.class));
+        order.setPayStatus(row.get("pay_status", String.class));
+        order.setAmount(row.get("amount", Long.class));
+        order.setVersion(row.get("version", Long.class));
+        return order;
+    }
+
+}
@@ -0,0 +1,84 @@
+package hello.springtx.order;
+
+import hello.springtx.outbox.OutboxEvent;
+import hello.springtx.outbox.ReactiveOutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/*
+OrderService.order 의 R2DBC 버전. 요청마다 쓰레드를 잡고 있지 않고 적은 수의 이벤트 루프 쓰레드로 처리함.
+TransactionalOperator 는 체크 예외를 포함한 모든 에러에 롤백하므로,
+잔고 부족은 트랜잭션 안에서 에러가 아닌 값으로 바꿔서 커밋한 뒤 트랜잭션 밖에서 NotEnoughMoneyException 으로 다시 던짐.
+(@Transactional 의 "체크 예외는 커밋, 런타임 예외는 롤백" 규칙과 같은 결과)
+주문 / 계좌 / 아웃박스는 OrderService 와 같은 DB 의 같은 테이블이므로 (ReactiveOrderConfig 참고)
+잔고는 하나이고, 대기 주문은 정산 작업 대상이 되고, 이벤트는 OutboxRelay 가 발행함.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveOrderService {
+
+    private final ReactiveOrderRepository reactiveOrderRepository;
+
+    private final ReactiveAccountRepository reactiveAccountRepository;
+
+    private final ReactiveOutboxEventRepository reactiveOutboxEventRepository;
+
+    private final TransactionalOperator reactiveOrderTransactionalOperator;
+
+    public Mono<Order> order(Order order) {
+        // 금액이 없거나 0 이하인 주문은 잔고 차감 없이 완료되므로 트랜잭션을 시작하기 전에 거부함 (OrderService 와 같음)
+        if (order.getAmount() == null || order.getAmount() <= 0) {
+            return Mono.error(new IllegalArgumentException("결제 금액은 0보다 커야 함. amount=" + order.getAmount()));
+        }
+        return process(order)
+                .as(reactiveOrderTransactionalOperator::transactional)
+                .flatMap(bizException -> Mono.<Order>error(bizException))
+                .then(Mono.just(order));
+    }
+
+    // 잔고 부족이면 NotEnoughMoneyException 을 값으로 반환, 정상 승인이면 empty
+    private Mono<NotEnoughMoneyException> process(Order order) {
+        return Mono.defer(() -> {
+                    log.info("order() 호출");
+                    return reactiveOrderRepository.save(order);
+                })
+                .doOnNext(saved -> log.info("결제 프로세스 시작"))
+                .flatMap(saved -> {
+                    if (saved.getUsername().equals("예외")) {
+                        log.info("시스템 예외 발생");
+                        return Mono.<NotEnoughMoneyException>error(new RuntimeException("시스템 예외"));
+                    }
+                    return pay(saved).flatMap(paid -> {
+                        if (!paid) {
+                            log.info("잔고 부족 비즈니스 예외 발생");
+                            saved.setPayStatus("대기");
+                            return reactiveOrderRepository.updatePayStatus(saved)
+                                    .flatMap(this::publish) // 대기 이벤트도 같이 커밋됨
+                                    .thenReturn(new NotEnoughMoneyException("잔고부족"));
+                        }
+                        log.info("정상 승인");
+                        saved.setPayStatus("완료");
+                        return reactiveOrderRepository.updatePayStatus(saved)
+                                .flatMap(this::publish)
+                                .then(Mono.<NotEnoughMoneyException>empty());
+                    });
+                });
+    }
+
+    // 주문과 같은 트랜잭션에서 아웃박스에 저장 (OrderService.publish 와 같은 이벤트)
+    private Mono<OutboxEvent> publish(Order order) {
+        return reactiveOutboxEventRepository.save(new OutboxEvent("Order", String.valueOf(order.getId()),
+                "order." + order.getPayStatus(), OrderService.payload(order)));
+    }
+
+    // 잔고가 충분하면 차감하고 true. 주문과 같은 트랜잭션이므로 주문이 롤백되면 차감도 롤백됨
+    private Mono<Boolean> pay(Order order) {
+        return reactiveAccountRepository.withdraw(order.getUsername(), order.getAmount())
+                .map(updated -> updated == 1);
+    }
+
+}
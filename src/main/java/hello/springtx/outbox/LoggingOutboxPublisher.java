@@ -0,0 +1,19 @@
+package hello.springtx.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+// OutboxPublisher 빈이 없을 때 사용: 로그만 남김
+@Slf4j
+class LoggingOutboxPublisher implements OutboxPublisher {
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            log.info("outbox 이벤트 발행. type={}, aggregateId={}, payload={}",
+                    event.getEventType(), event.getAggregateId(), event.getPayload());
+        }
+    }
+
+}
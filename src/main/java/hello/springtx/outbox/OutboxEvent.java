@@ -0,0 +1,46 @@
+package hello.springtx.outbox;
+
+import lombok.Data;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import java.time.LocalDateTime;
+
+/*
+트랜잭션 아웃박스: 비즈니스 데이터와 같은 트랜잭션에서 저장되는 발행 대기 이벤트.
+비즈니스 트랜잭션이 롤백되면 이벤트도 같이 롤백되고, 커밋되면 OutboxRelay 가 나중에 발행한 뒤 삭제함.
+ */
+@Entity
+@Data
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq_generator")
+    @SequenceGenerator(name = "outbox_event_seq_generator", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+
+    private String aggregateType;
+
+    private String aggregateId;
+
+    private String eventType;
+
+    private String payload;
+
+    private LocalDateTime createdAt;
+
+    public OutboxEvent() {
+    }
+
+    public OutboxEvent(String aggregateType, String aggregateId, String eventType, String payload) {
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+    }
+
+}
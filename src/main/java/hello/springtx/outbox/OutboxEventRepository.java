@@ -0,0 +1,37 @@
+package hello.springtx.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /*
+    워커 하나가 가져갈 이벤트를 행 락을 잡고 읽음 (select ... for update skip locked).
+    - 다른 워커가 잡고 있는 행은 기다리지 않고 건너뜀 (lock.timeout = -2 는 Hibernate 의 LockOptions.SKIP_LOCKED)
+    - SKIP LOCKED 를 지원하지 않는 DB(H2 등)에서는 일반 for update 가 되므로 mod(id, workers) 로 워커마다 다른 행을 읽게 해서
+      워커끼리 락을 기다리지 않게 함
+    - mod(id, workers) 분할은 인스턴스 하나를 전제로 함. 인스턴스가 여러 개면 인스턴스마다 같은 workerNo 워커가 있으므로
+      서로 같은 행을 노리게 되고, 이 경우 중복 없이 나눠 가지는 것은 SKIP LOCKED 에만 기대게 됨
+      -> 여러 인스턴스에서 릴레이를 켜려면 SKIP LOCKED 를 지원하는 DB(PostgreSQL, MySQL 8 등)여야 함
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select e from OutboxEvent e where mod(e.id, :workers) = :workerNo order by e.id")
+    List<OutboxEvent> claim(@Param("workers") long workers, @Param("workerNo") long workerNo, Pageable pageable);
+
+    // 발행이 끝난 이벤트를 DELETE 한 번으로 삭제
+    @Modifying
+    @Query("delete from OutboxEvent e where e.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+}
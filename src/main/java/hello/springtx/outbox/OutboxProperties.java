@@ -0,0 +1,24 @@
+package hello.springtx.outbox;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("springtx.outbox.relay")
+public class OutboxProperties {
+
+    // false 면 워커 쓰레드를 시작하지 않음 (OutboxRelay.relay() 를 직접 호출할 수는 있음)
+    private boolean enabled = false;
+
+    // 워커 쓰레드 수. 워커마다 mod(id, workers) 로 다른 이벤트를 가져감 (인스턴스 하나 안에서만 나뉨)
+    private int workers = 2;
+
+    // 한 트랜잭션에서 가져와서 발행하고 삭제할 최대 이벤트 수
+    private int batchSize = 500;
+
+    // 가져온 이벤트가 batchSize 보다 적으면 (밀린 이벤트가 없으면) 다음 폴링까지 대기하는 시간
+    private Duration pollInterval = Duration.ofMillis(100);
+
+}
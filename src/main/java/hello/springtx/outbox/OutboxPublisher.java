@@ -0,0 +1,14 @@
+package hello.springtx.outbox;
+
+import java.util.List;
+
+/*
+아웃박스 이벤트를 외부 시스템(메시지 브로커 등)으로 보냄.
+예외 없이 반환하면 발행된 것으로 보고 이벤트를 삭제하고, 예외를 던지면 이벤트가 남아서 다음 폴링에 다시 발행됨 (at-least-once).
+ */
+@FunctionalInterface
+public interface OutboxPublisher {
+
+    void publish(List<OutboxEvent> events);
+
+}
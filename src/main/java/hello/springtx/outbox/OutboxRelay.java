@@ -0,0 +1,160 @@
+package hello.springtx.outbox;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/*
+아웃박스 이벤트를 폴링해서 발행함. 워커 쓰레드마다 반복:
+1. 트랜잭션 시작, 자기 몫의 이벤트를 batchSize 만큼 행 락을 잡고 읽음 (OutboxEventRepository.claim)
+2. OutboxPublisher 로 한 번에 발행
+3. 발행한 이벤트를 DELETE 한 번으로 삭제하고 커밋
+발행이 실패하면 트랜잭션이 롤백되어 이벤트가 그대로 남고 다음 폴링에 다시 발행됨 (at-least-once, 소비하는 쪽은 id 로 중복 제거).
+주문 트랜잭션은 아웃박스 insert 하나만 늘어나고 발행 I/O 는 기다리지 않음.
+ */
+@Slf4j
+@Component
+public class OutboxRelay implements MeterBinder {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final OutboxPublisher publisher;
+
+    private final TransactionTemplate txTemplate;
+
+    private final OutboxProperties properties;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, ObjectProvider<OutboxPublisher> publisher,
+                       PlatformTransactionManager transactionManager, OutboxProperties properties) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.publisher = publisher.getIfAvailable(LoggingOutboxPublisher::new);
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.txTemplate.setName("OutboxRelay.relay");
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            int workerNo = i;
+            Thread worker = new Thread(() -> runWorker(workerNo), "outbox-relay-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+            worker.join(properties.getPollInterval().toMillis() * 2 + 1_000);
+        }
+    }
+
+    /**
+     * workerNo 몫의 이벤트를 한 배치 발행하고 삭제한다.
+     *
+     * @return 발행한 이벤트 수
+     */
+    public int relay(int workerNo) {
+        Integer count;
+        try {
+            count = txTemplate.execute(status -> {
+                List<OutboxEvent> events = outboxEventRepository.claim(
+                        properties.getWorkers(), workerNo, PageRequest.of(0, properties.getBatchSize()));
+                if (events.isEmpty()) {
+                    return 0;
+                }
+                publisher.publish(events);
+                outboxEventRepository.deleteByIds(events.stream().map(OutboxEvent::getId).collect(Collectors.toList()));
+                return events.size();
+            });
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            throw e;
+        }
+        published.addAndGet(count);
+        return count;
+    }
+
+    /**
+     * 모든 워커 몫의 이벤트를 더 이상 없을 때까지 발행한다.
+     *
+     * @return 발행한 이벤트 수
+     */
+    public int relayAll() {
+        int total = 0;
+        for (int workerNo = 0; workerNo < properties.getWorkers(); workerNo++) {
+            int count;
+            do {
+                count = relay(workerNo);
+                total += count;
+            } while (count == properties.getBatchSize());
+        }
+        return total;
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("outbox.relay.published", published, AtomicLong::get).register(registry);
+        FunctionCounter.builder("outbox.relay.failed", failed, AtomicLong::get).register(registry);
+    }
+
+    private void runWorker(int workerNo) {
+        long pollMillis = properties.getPollInterval().toMillis();
+        while (running) {
+            try {
+                // 한 배치가 가득 찼으면 밀린 이벤트가 더 있으므로 대기 없이 바로 다음 배치를 가져감
+                if (relay(workerNo) < properties.getBatchSize()) {
+                    Thread.sleep(pollMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("outbox 이벤트 발행 실패. worker={}", workerNo, e);
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package hello.springtx.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/*
+OutboxEventRepository.save 의 R2DBC 버전. ReactiveOrderService 의 TransactionalOperator 안에서 호출하면
+주문과 같은 트랜잭션에서 저장되고, 같은 outbox_event 테이블이므로 OutboxRelay 가 그대로 발행함.
+id 는 outbox_event_seq 에서 값 하나를 받아서 씀 (pooled-lo 라서 Hibernate 는 자기가 받은 값부터 allocationSize 만큼만 쓰므로 겹치지 않음)
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveOutboxEventRepository {
+
+    private final DatabaseClient reactiveOrderDatabaseClient;
+
+    public Mono<OutboxEvent> save(OutboxEvent event) {
+        return reactiveOrderDatabaseClient.sql("select next value for outbox_event_seq")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> reactiveOrderDatabaseClient
+                        .sql("insert into outbox_event (id, aggregate_type, aggregate_id, event_type, payload, created_at) " +
+                                "values (:id, :aggregateType, :aggregateId, :eventType, :payload, :createdAt)")
+                        .bind("id", id)
+                        .bind("aggregateType", event.getAggregateType())
+                        .bind("aggregateId", event.getAggregateId())
+                        .bind("eventType", event.getEventType())
+                        .bind("payload", event.getPayload())
+                        .bind("createdAt", event.getCreatedAt())
+                        .then()
+                        .then(Mono.fromCallable(() -> {
+                            event.setId(id);
+                            return event;
+                        })));
+    }
+
+}
@@ -0,0 +1,32 @@
+package hello.springtx.propagation;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("springtx.audit-log")
+public class AuditLogProperties {
+
+    // 큐에 쌓아둘 수 있는 최대 로그 수 (이 이상은 overflowPolicy에 따라 처리)
+    private int capacity = 10_000;
+
+    // 하나의 REQUIRES_NEW 트랜잭션에서 저장할 최대 로그 수
+    private int batchSize = 100;
+
+    // 큐가 비어있을 때 워커가 대기하는 최대 시간
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+    // BLOCK 정책에서 큐에 자리가 날 때까지 기다리는 최대 시간 (초과하면 버림)
+    private Duration offerTimeout = Duration.ofMillis(50);
+
+    public enum OverflowPolicy {
+        DROP_NEWEST, // 새로 들어온 로그를 버림
+        DROP_OLDEST, // 가장 오래된 로그를 버리고 새 로그를 넣음
+        BLOCK        // offerTimeout 만큼 호출 쓰레드를 대기시킴 (배압)
+    }
+
+}
@@ -0,0 +1,231 @@
+package hello.springtx.propagation;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+회원 트랜잭션 안에서 로그를 바로 저장하지 않고, 커밋이 끝난 뒤(afterCommit)에만 큐에 넣어두었다가
+별도 쓰레드가 batchSize 단위로 묶어서 REQUIRES_NEW 트랜잭션으로 저장함.
+- 롤백된 트랜잭션의 로그는 큐에 들어가지 않음
+- 회원 트랜잭션은 로그 저장 I/O를 기다리지 않으므로 짧게 끝남
+- 큐는 크기가 제한되어 있고, 넘치는 로그는 OverflowPolicy에 따라 처리되며 그 수가 집계됨
+- flush()는 큐에 남은 로그뿐 아니라 워커가 이미 꺼내서 저장 중인 배치가 끝날 때까지 기다림
+  (큐에 넣기 전에 pending 을 올리고, 저장 / 저장 실패 / DROP_OLDEST 로 버려진 뒤에 내림)
+ */
+@Slf4j
+@Component
+public class AuditLogWriter implements MeterBinder {
+
+    private final LogRepository logRepository;
+
+    private final TransactionTemplate txTemplate;
+
+    private final AuditLogProperties properties;
+
+    private final BlockingQueue<Log> queue;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // 큐에 있거나 저장 중인 로그 수 (0 이 되면 settled 로 flush() 를 깨움)
+    private final AtomicLong pending = new AtomicLong();
+    private final Object settled = new Object();
+
+    private volatile boolean running;
+
+    private Thread worker;
+
+    public AuditLogWriter(LogRepository logRepository, PlatformTransactionManager transactionManager, AuditLogProperties properties) {
+        this.logRepository = logRepository;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::runWorker, "audit-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join(properties.getFlushInterval().toMillis() * 2 + 1_000);
+        }
+        flush(); // 종료 시점에 남아있는 로그까지 저장
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 로그를 큐에 넣는다. 트랜잭션 밖에서 호출하면 바로 큐에 넣는다.
+     */
+    public void write(Log logEntity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(logEntity);
+                }
+            });
+        } else {
+            enqueue(logEntity);
+        }
+    }
+
+    /**
+     * 큐에 쌓인 로그를 호출한 쓰레드에서 모두 저장하고, 워커가 저장 중인 배치가 끝날 때까지 기다린다.
+     */
+    public void flush() {
+        List<Log> batch = new ArrayList<>(properties.getBatchSize());
+        while (true) {
+            while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+                writeBatch(batch);
+                batch.clear();
+            }
+            synchronized (settled) {
+                if (pending.get() == 0) {
+                    return;
+                }
+                if (worker == null || !worker.isAlive()) {
+                    // 꺼내간 배치를 마칠 워커가 없음 (큐에 남은 것은 위에서 다시 저장함)
+                    if (queue.isEmpty()) {
+                        log.warn("audit log 워커가 종료되어 저장 중이던 로그를 기다리지 않음. pending={}", pending.get());
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    settled.wait(properties.getFlushInterval().toMillis() + 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(enqueued.get(), written.get(), dropped.get(), failed.get(), queue.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("audit.log.enqueued", enqueued, AtomicLong::get).register(registry);
+        FunctionCounter.builder("audit.log.written", written, AtomicLong::get).register(registry);
+        FunctionCounter.builder("audit.log.dropped", dropped, AtomicLong::get).register(registry);
+        FunctionCounter.builder("audit.log.failed", failed, AtomicLong::get).register(registry);
+        Gauge.builder("audit.log.queue.size", queue, BlockingQueue::size).register(registry);
+    }
+
+    private void enqueue(Log logEntity) {
+        pending.incrementAndGet(); // 워커가 꺼내기 전에 올려둬야 flush() 가 저장 중인 로그를 놓치지 않음
+        boolean accepted;
+        switch (properties.getOverflowPolicy()) {
+            case DROP_OLDEST:
+                accepted = queue.offer(logEntity);
+                while (!accepted) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                        settle(1);
+                    }
+                    accepted = queue.offer(logEntity);
+                }
+                break;
+            case BLOCK:
+                try {
+                    accepted = queue.offer(logEntity, properties.getOfferTimeout().toNanos(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    accepted = false;
+                }
+                break;
+            default:
+                accepted = queue.offer(logEntity);
+        }
+
+        if (accepted) {
+            enqueued.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+            settle(1);
+            log.debug("audit log 큐가 가득 차서 로그를 버림. logMessage={}", logEntity.getMessage());
+        }
+    }
+
+    private void runWorker() {
+        List<Log> batch = new ArrayList<>(properties.getBatchSize());
+        long pollNanos = properties.getFlushInterval().toNanos();
+
+        while (running) {
+            try {
+                Log first = queue.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Log> batch) {
+        try {
+            txTemplate.executeWithoutResult(status -> logRepository.saveAll(batch));
+            written.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failed.addAndGet(batch.size());
+            log.warn("audit log 배치 저장 실패. size={}", batch.size(), e);
+        } finally {
+            settle(batch.size());
+        }
+    }
+
+    private void settle(int count) {
+        if (pending.addAndGet(-count) == 0) {
+            synchronized (settled) {
+                settled.notifyAll();
+            }
+        }
+    }
+
+    @Value
+    public static class Stats {
+        long enqueued;
+        long written;
+        long dropped;
+        long failed;
+        int queueSize;
+    }
+
+}
@@ -2,19 +2,21 @@ package hello.springtx.propagation;
 
 import lombok.Data;
 
-import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.Id;
+import java.time.LocalDateTime;
 
-@Entity
+/*
+감사 로그. JPA 엔티티가 아니라 LogRepository 가 JDBC 로 날짜별 테이블(log_yyyymmdd)에 저장함.
+ */
 @Data
 public class Log {
 
-    @Id @GeneratedValue
     private Long id;
 
     private String message;
 
+    // 저장할 테이블(날짜 버킷)을 결정함. 비어있으면 저장 시점으로 채워짐
+    private LocalDateTime createdAt;
+
     public Log() {
     }
 
@@ -0,0 +1,21 @@
+package hello.springtx.propagation;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("springtx.log.buckets")
+public class LogBucketProperties {
+
+    // 이 일수보다 오래된 날짜 테이블은 통째로 drop
+    private int retentionDays = 30;
+
+    // 오늘 이후 며칠치 테이블을 미리 만들어둘지 (자정 직후 첫 insert 가 DDL 을 기다리지 않도록)
+    private int precreateDays = 1;
+
+    // 테이블 미리 생성 / 보관 기간 지난 테이블 삭제 주기
+    private Duration maintenanceInterval = Duration.ofHours(1);
+
+}
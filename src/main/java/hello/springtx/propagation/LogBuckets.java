@@ -0,0 +1,230 @@
+package hello.springtx.propagation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+로그를 날짜별 테이블(log_yyyymmdd)로 나눠서 관리함.
+- 테이블마다 message 인덱스를 따로 가지므로 insert / 조회 비용이 전체 로그 양이 아니라 하루치 양에만 비례함
+- 보관 기간이 지난 로그는 행 단위 DELETE 대신 테이블을 통째로 drop (언두 / 인덱스 갱신 비용 없음)
+- DDL 은 진행 중인 트랜잭션과 섞이지 않도록 DataSource 에서 별도 커넥션을 받아서 실행함
+  (H2 / MySQL 등은 DDL 실행 시 현재 트랜잭션을 암묵적으로 커밋함)
+- 테이블은 시작 시점과 관리 쓰레드(maintenanceInterval 마다)에서만 미리 만들고, 로그 쓰기 경로에서는 만들지 않음
+  트랜잭션 커넥션을 쥔 채로 DDL 용 커넥션을 하나 더 요청하면 ConnectionGuardDataSource 가 막는 중첩 획득이 되고,
+  풀이 포화된 상태에서는 fail_fast 로 실패하거나 서로 커넥션을 기다리며 멈출 수 있음
+  -> 없는 날짜 테이블에 쓰면 예외가 발생함. 지난 날짜 로그를 넣을 때는 트랜잭션 밖에서 ensure 로 먼저 만들어야 함
+ */
+@Slf4j
+@Component
+public class LogBuckets {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final Pattern TABLE_NAME = Pattern.compile("LOG_(\\d{8})", Pattern.CASE_INSENSITIVE);
+
+    private final DataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LogBucketProperties properties;
+
+    private final Clock clock;
+
+    // 존재하는 날짜 테이블 (오름차순)
+    private final NavigableSet<LocalDate> buckets = new ConcurrentSkipListSet<>();
+
+    private volatile ScheduledExecutorService maintenance;
+
+    public LogBuckets(DataSource dataSource, JdbcTemplate jdbcTemplate, LogBucketProperties properties, ObjectProvider<Clock> clock) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.clock = clock.getIfAvailable(Clock::systemDefaultZone);
+    }
+
+    @PostConstruct
+    public void start() {
+        // pooled-lo: 시퀀스 값 하나로 id 50개를 할당 (LogRepository.ID_BLOCK)
+        executeDdl("create sequence if not exists log_seq start with 1 increment by " + LogRepository.ID_BLOCK);
+        refresh();
+        maintain();
+
+        long intervalMillis = properties.getMaintenanceInterval().toMillis();
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-bucket-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleAtFixedRate(this::maintainQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+    }
+
+    public LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    public String table(LocalDate date) {
+        return "log_" + SUFFIX.format(date);
+    }
+
+    /**
+     * 로그를 쓸 날짜 테이블 이름을 반환한다. 테이블을 만들지는 않는다.
+     *
+     * @throws InvalidDataAccessResourceUsageException 날짜 테이블이 아직 없을 때
+     */
+    public String writableTable(LocalDate date) {
+        if (!buckets.contains(date)) {
+            // 관리 쓰레드가 밀린 경우를 대비해서 바로 한 번 실행 요청 (호출한 쪽은 기다리지 않음)
+            if (maintenance != null && !maintenance.isShutdown()) {
+                maintenance.execute(this::precreateQuietly);
+            }
+            throw new InvalidDataAccessResourceUsageException("로그 테이블이 아직 없음. table=" + table(date)
+                    + " (LogBuckets.ensure 로 트랜잭션 밖에서 먼저 만들어야 함)");
+        }
+        return table(date);
+    }
+
+    /**
+     * 날짜 테이블이 없으면 만들고 테이블 이름을 반환한다.
+     * DDL 용 커넥션을 따로 받으므로 트랜잭션 커넥션을 쥐지 않은 상태(트랜잭션 밖)에서만 호출할 수 있다.
+     */
+    public String ensure(LocalDate date) {
+        if (!buckets.contains(date)) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw new IllegalStateException("트랜잭션 안에서는 로그 테이블을 만들 수 없음. table=" + table(date));
+            }
+            synchronized (this) {
+                if (!buckets.contains(date)) {
+                    String table = table(date);
+                    executeDdl("create table if not exists " + table +
+                            " (id bigint not null primary key, message varchar(255), created_at timestamp not null)");
+                    executeDdl("create index if not exists idx_" + table + "_message on " + table + " (message)");
+                    buckets.add(date);
+                    log.info("로그 테이블 생성. table={}", table);
+                }
+            }
+        }
+        return table(date);
+    }
+
+    /**
+     * from ~ to (포함) 사이의 날짜 테이블, 최신 날짜부터
+     */
+    public List<LocalDate> between(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(buckets.subSet(from, true, to, true).descendingSet());
+    }
+
+    /**
+     * 보관 기간 안에 있는 날짜 테이블, 최신 날짜부터
+     */
+    public List<LocalDate> retained() {
+        LocalDate today = now().toLocalDate();
+        return between(today.minusDays(properties.getRetentionDays()), today.plusDays(properties.getPrecreateDays()));
+    }
+
+    public List<LocalDate> all() {
+        return new ArrayList<>(buckets);
+    }
+
+    /**
+     * 보관 기간이 지난 날짜 테이블을 drop 하고 삭제한 테이블 수를 반환한다.
+     */
+    public int dropExpired() {
+        LocalDate oldest = now().toLocalDate().minusDays(properties.getRetentionDays());
+        int dropped = 0;
+        for (LocalDate date : new ArrayList<>(buckets.headSet(oldest, false))) {
+            synchronized (this) {
+                executeDdl("drop table if exists " + table(date));
+                buckets.remove(date);
+            }
+            dropped++;
+            log.info("보관 기간이 지난 로그 테이블 삭제. table={}", table(date));
+        }
+        return dropped;
+    }
+
+    // 오늘 ~ precreateDays 일 뒤 테이블을 미리 만들고, 보관 기간이 지난 테이블은 삭제
+    public void maintain() {
+        precreate();
+        dropExpired();
+    }
+
+    private void precreate() {
+        LocalDate today = now().toLocalDate();
+        for (int i = 0; i <= properties.getPrecreateDays(); i++) {
+            ensure(today.plusDays(i));
+        }
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.warn("로그 테이블 관리 실패", e);
+        }
+    }
+
+    private void precreateQuietly() {
+        try {
+            precreate();
+        } catch (RuntimeException e) {
+            log.warn("로그 테이블 미리 생성 실패", e);
+        }
+    }
+
+    private void refresh() {
+        List<String> tables = jdbcTemplate.queryForList(
+                "select table_name from information_schema.tables where table_name like 'LOG!_%' escape '!'", String.class);
+        for (String table : tables) {
+            Matcher matcher = TABLE_NAME.matcher(table);
+            if (matcher.matches()) {
+                buckets.add(LocalDate.parse(matcher.group(1), SUFFIX));
+            }
+        }
+    }
+
+    private void executeDdl(String sql) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("로그 테이블 DDL 실패. sql=" + sql, e);
+        }
+    }
+
+}
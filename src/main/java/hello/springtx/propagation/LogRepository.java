@@ -1,20 +1,83 @@
 package hello.springtx.propagation;
 
-import lombok.RequiredArgsConstructor;
+import hello.springtx.datasource.ReadWriteRoutingDataSource;
+import hello.springtx.tx.TransactionBuffers;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/*
+로그는 날짜별 테이블(log_yyyymmdd)에 나눠서 저장함 (LogBuckets).
+- insert 는 created_at 날짜의 테이블 하나에만, 테이블별 multi-row insert 로 전송
+- 조회는 보관 기간 안의 테이블을 최신 날짜부터 확인하고, 기간이 주어지면 그 기간의 테이블만 확인
+- id 는 log_seq 시퀀스 값 하나로 ID_BLOCK 개씩 할당 (pooled-lo), 날짜 테이블이 바뀌어도 전역에서 유일함
+JDBC 로 직접 접근하지만 JpaTransactionManager 가 트랜잭션 커넥션을 DataSource 에 바인딩하므로
+같은 트랜잭션 안의 JPA 작업과 함께 커밋 / 롤백됨.
+
+Log 를 JPA 엔티티에서 JDBC 로 바꾸면서 엔티티에 걸려 있던 최적화는 아래처럼 옮겨옴
+- 시퀀스 할당 묶기 (allocationSize 50)  -> nextId() 의 pooled-lo, 시퀀스 조회 한 번에 id ID_BLOCK 개
+- message 인덱스 / 첫 행에서 멈추기     -> 날짜 테이블마다 idx_log_yyyymmdd_message, 조회는 limit 1
+- 커밋 직전 한 번에 쓰기 (JDBC 배치)     -> LogWriteBuffer + batch_size 단위 multi-row insert
+- 읽기 전용 조회 힌트                    -> 영속성 컨텍스트 / 스냅샷이 없으므로 필요 없음. 조회 메서드의 readOnly 트랜잭션은 유지
+날짜 테이블은 primary 에서 관리 쓰레드가 만들기 때문에 replica 에는 아직 없을 수 있으므로,
+라우팅(springtx.datasource.routing)을 켜도 로그 조회는 primary 를 사용함 (usePrimaryForCurrentTransaction).
+ */
 @Slf4j
 @Repository
-@RequiredArgsConstructor
 public class LogRepository {
 
-    private final EntityManager em;
+    static final int ID_BLOCK = 50;
+
+    private static final RowMapper<Log> ROW_MAPPER = (rs, rowNum) -> {
+        Log logEntity = new Log(rs.getString("message"));
+        logEntity.setId(rs.getLong("id"));
+        logEntity.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return logEntity;
+    };
+
+    private final LogBuckets buckets;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // 내보내기용: 결과를 fetchSize 단위로 나눠서 가져옴
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    private final int batchSize;
+
+    private long nextId;
+
+    private long lastIdInBlock = -1;
+
+    public LogRepository(LogBuckets buckets, DataSource dataSource,
+                         @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.buckets = buckets;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(batchSize);
+        this.batchSize = batchSize;
+    }
 
 //    @Transactional
 //    @Transactional(propagation = Propagation.REQUIRES_NEW)
@@ -28,19 +91,200 @@ public class LogRepository {
 //            throw new Exception("체크 예외 발생");
         }
 
-        em.persist(logEntity);
+        // 바로 insert 하지 않고 트랜잭션 버퍼에 모았다가 커밋 직전에 한 번에 저장 (롤백되면 insert 자체가 없음)
+        TransactionBuffers.bind(this, () -> new LogWriteBuffer(this::insertAll)).add(logEntity);
+    }
+
+    /*
+    MemberService.joinV2Nested 용: 호출한 쪽 트랜잭션과 같은 커넥션에 세이브포인트를 만들고 바로 insert 함.
+    실패하면 세이브포인트까지만 롤백되고 바깥 트랜잭션은 rollbackOnly 로 마킹되지 않음.
+    (버퍼에 담으면 insert 가 커밋 직전에 세이브포인트 밖에서 실행되므로 버퍼를 사용하지 않음)
+     */
+    @Transactional(propagation = Propagation.NESTED)
+    public void saveNested(Log logEntity) {
+        log.info("log 저장 (NESTED)");
+        insertOrFail(logEntity);
+    }
+
+    // 비교용 (MemberService.joinV2RequiresNew): 바깥 트랜잭션을 보류하고 커넥션을 하나 더 사용해서 따로 커밋함
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void saveRequiresNew(Log logEntity) {
+        log.info("log 저장 (REQUIRES_NEW)");
+        insertOrFail(logEntity);
+    }
+
+    @Transactional
+    public void saveAll(Collection<Log> logs) {
+        log.info("log 일괄 저장. size={}", logs.size());
+        insertAll(logs);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Log> findByMessage(String message) {
-        return em.createQuery("select l from Log l where l.message = :message", Log.class)
-                .setParameter("message", message)
-                .getResultList()
-                .stream()
-                .findFirst();
+        ReadWriteRoutingDataSource.usePrimaryForCurrentTransaction();
+
+        // 같은 트랜잭션에서 저장 요청했지만 아직 버퍼에 있는 로그도 조회됨
+        LogWriteBuffer buffer = TransactionBuffers.current(this);
+        if (buffer != null) {
+            Optional<Log> buffered = buffer.findByMessage(message);
+            if (buffered.isPresent()) {
+                return buffered;
+            }
+        }
+
+        return findFirst(message, buckets.retained());
+    }
+
+    /**
+     * from ~ to (포함) 날짜의 테이블만 조회한다.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Log> findByMessage(String message, LocalDate from, LocalDate to) {
+        ReadWriteRoutingDataSource.usePrimaryForCurrentTransaction();
+        return findFirst(message, buckets.between(from, to));
+    }
+
+    // 리포팅 등 대량 조회용
+    @Transactional(readOnly = true)
+    public List<Log> findAll() {
+        ReadWriteRoutingDataSource.usePrimaryForCurrentTransaction();
+        List<Log> result = new ArrayList<>();
+        for (LocalDate date : buckets.all()) {
+            result.addAll(jdbcTemplate.query("select id, message, created_at from " + buckets.table(date), ROW_MAPPER));
+        }
+        return result;
     }
 
+    // 내보내기용: 호출한 쪽의 읽기 전용 트랜잭션 안에서 소비하고 닫아야 함 (try-with-resources)
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public Stream<Log> streamAll() {
+        ReadWriteRoutingDataSource.usePrimaryForCurrentTransaction();
+        BucketCursor cursor = new BucketCursor(buckets.all());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    // 영속성 컨텍스트를 사용하지 않으므로 비울 것이 없음 (MemberRepository.clear() 와 짝을 맞추기 위해 남겨둠)
     public void clear() {
-        em.clear();
+    }
+
+    // insert 를 실행한 뒤에 예외를 던짐 -> 롤백이 이미 실행된 SQL 까지 되돌리는지 확인할 수 있음
+    private void insertOrFail(Log logEntity) {
+        insertAll(Collections.singletonList(logEntity));
+        if (logEntity.getMessage().contains("로그예외")) {
+            log.info("log 저장 도중 예외 발생");
+            throw new RuntimeException("런타임 예외 발생");
+        }
+    }
+
+    private Optional<Log> findFirst(String message, List<LocalDate> dates) {
+        for (LocalDate date : dates) {
+            List<Log> found = jdbcTemplate.query(
+                    "select id, message, created_at from " + buckets.table(date) + " where message = ? limit 1",
+                    ROW_MAPPER, message);
+            if (!found.isEmpty()) {
+                return Optional.of(found.get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void insertAll(Collection<Log> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = buckets.now();
+        Map<LocalDate, List<Log>> byDate = new LinkedHashMap<>();
+        for (Log logEntity : logs) {
+            if (logEntity.getCreatedAt() == null) {
+                logEntity.setCreatedAt(now);
+            }
+            if (logEntity.getId() == null) {
+                logEntity.setId(nextId());
+            }
+            byDate.computeIfAbsent(logEntity.getCreatedAt().toLocalDate(), date -> new ArrayList<>()).add(logEntity);
+        }
+
+        for (Map.Entry<LocalDate, List<Log>> entry : byDate.entrySet()) {
+            String table = buckets.writableTable(entry.getKey());
+            List<Log> rows = entry.getValue();
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                insertRows(table, rows.subList(from, Math.min(from + batchSize, rows.size())));
+            }
+        }
+    }
+
+    // insert into log_yyyymmdd (id, message, created_at) values (?, ?, ?), (?, ?, ?), ...
+    private void insertRows(String table, List<Log> rows) {
+        StringBuilder sql = new StringBuilder("insert into ").append(table).append(" (id, message, created_at) values ");
+        Object[] args = new Object[rows.size() * 3];
+        for (int i = 0; i < rows.size(); i++) {
+            Log logEntity = rows.get(i);
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+            args[i * 3] = logEntity.getId();
+            args[i * 3 + 1] = logEntity.getMessage();
+            args[i * 3 + 2] = Timestamp.valueOf(logEntity.getCreatedAt());
+        }
+        jdbcTemplate.update(sql.toString(), args);
+    }
+
+    private synchronized long nextId() {
+        if (nextId > lastIdInBlock) {
+            Long hi = jdbcTemplate.queryForObject("select next value for log_seq", Long.class);
+            nextId = hi;
+            lastIdInBlock = hi + ID_BLOCK - 1;
+        }
+        return nextId++;
+    }
+
+    /*
+    날짜 테이블을 오래된 것부터 하나씩 열어서 읽음. 한 번에 열려 있는 커서는 하나뿐임.
+    (Stream.flatMap 은 iterator() 로 소비할 때 하위 스트림 전체를 버퍼에 담으므로 사용하지 않음)
+     */
+    private class BucketCursor implements Iterator<Log>, AutoCloseable {
+
+        private final Iterator<LocalDate> dates;
+
+        private Stream<Log> current;
+
+        private Iterator<Log> rows;
+
+        BucketCursor(List<LocalDate> dates) {
+            this.dates = dates.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (rows == null || !rows.hasNext()) {
+                close();
+                if (!dates.hasNext()) {
+                    return false;
+                }
+                current = streamingJdbcTemplate.queryForStream(
+                        "select id, message, created_at from " + buckets.table(dates.next()) + " order by id", ROW_MAPPER);
+                rows = current.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Log next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return rows.next();
+        }
+
+        @Override
+        public void close() {
+            if (current != null) {
+                current.close();
+                current = null;
+                rows = null;
+            }
+        }
+
     }
 
 }
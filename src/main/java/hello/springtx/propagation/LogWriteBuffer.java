@@ -0,0 +1,56 @@
+package hello.springtx.propagation;
+
+import hello.springtx.tx.UnitOfWorkBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/*
+트랜잭션 하나 동안 저장 요청된 로그를 모아두었다가 커밋 직전에 한 번에 저장함.
+flush 시 LogRepository 가 날짜 테이블별로 multi-row insert 하므로 로그 수십 건을 써도 DB 왕복은 몇 번으로 끝남.
+ */
+class LogWriteBuffer implements UnitOfWorkBuffer {
+
+    private final Consumer<List<Log>> writer;
+
+    private final List<Log> pending = new ArrayList<>();
+
+    LogWriteBuffer(Consumer<List<Log>> writer) {
+        this.writer = writer;
+    }
+
+    void add(Log logEntity) {
+        pending.add(logEntity);
+    }
+
+    // 아직 저장되지 않은 로그 중 가장 먼저 요청된 것
+    Optional<Log> findByMessage(String message) {
+        for (Log logEntity : pending) {
+            if (logEntity.getMessage().equals(message)) {
+                return Optional.of(logEntity);
+            }
+        }
+        return Optional.empty();
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    @Override
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        writer.accept(new ArrayList<>(pending));
+        pending.clear();
+    }
+
+    @Override
+    public void discard() {
+        pending.clear();
+    }
+
+}
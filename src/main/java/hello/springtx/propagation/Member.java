@@ -1,20 +1,37 @@
 package hello.springtx.propagation;
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
+@Table(indexes = @Index(name = "idx_member_username", columnList = "username"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member") // 2차 캐시는 cache 프로필에서만 활성화됨
 @Data
 public class Member {
 
-    @Id @GeneratedValue
+    // 시퀀스를 50개 단위로 미리 할당받아(pooled-lo) insert 마다 시퀀스 조회를 하지 않고, JDBC 배치 insert가 가능하게 함
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     private Long id;
 
     private String username;
 
+    @Version
+    private Long version;
+
     public Member() {
     }
 
@@ -0,0 +1,18 @@
+package hello.springtx.propagation;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("springtx.member.cache")
+public class MemberCacheProperties {
+
+    private boolean enabled;
+
+    private long maximumSize = 10_000;
+
+    private Duration ttl = Duration.ofMinutes(10);
+
+}
@@ -0,0 +1,77 @@
+package hello.springtx.propagation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+findByUsername 조회 결과(username -> member id)를 담아두는 프로세스 내 캐시.
+엔티티 자체는 id로 다시 조회하므로 Hibernate 2차 캐시(member 리전)에서 가져오게 됨.
+
+캐시 반영은 항상 트랜잭션 커밋 이후(afterCommit)에만 일어남.
+- 롤백된 joinV1 / joinV2 에서 저장하려던 회원은 캐시에 들어가지 않음
+- 커밋되지 않은 데이터를 다른 쓰레드가 캐시를 통해 보게 되는 일이 없음
+ */
+@Component
+public class MemberLookupCache implements MeterBinder {
+
+    private final boolean enabled;
+
+    private final Cache<String, Long> cache;
+
+    public MemberLookupCache(MemberCacheProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+    }
+
+    @Nullable
+    public Long getId(String username) {
+        return enabled ? cache.getIfPresent(username) : null;
+    }
+
+    public void putAfterCommit(String username, Long id) {
+        if (enabled) {
+            afterCommit(() -> cache.put(username, id));
+        }
+    }
+
+    // 잘못된 항목을 지우는 것은 커밋되지 않은 데이터를 노출하지 않으므로 바로 반영함
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // cache.gets{result=hit|miss}, cache.evictions 등으로 노출
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "member.lookup");
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+}
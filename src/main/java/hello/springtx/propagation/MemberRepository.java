@@ -1,36 +1,149 @@
 package hello.springtx.propagation;
 
-import lombok.RequiredArgsConstructor;
+import hello.springtx.sharding.ShardedMemberRepository;
+import hello.springtx.support.JpaBatch;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static hello.springtx.support.ReadOnlyQueries.readOnly;
+import static hello.springtx.support.ReadOnlyQueries.streamDetached;
+
+/*
+springtx.member.sharding.enabled=true 이면 모든 메서드가 ShardedMemberRepository 로 위임되고 메인 DB 의 member 테이블은 쓰지 않음.
+- 저장은 username 을 가진 샤드의 트랜잭션에서 실행되고, 호출한 쪽에 샤드 트랜잭션이 없으면 save 가 끝날 때 샤드에 바로 커밋됨
+  호출한 쪽의 메인 DB 트랜잭션(로그 등)과 묶이지 않으므로, 메인 DB 트랜잭션이 나중에 롤백되어도 샤드의 Member 는 남음
+  (함께 롤백되어야 하면 MemberService.joinV1 처럼 실패할 수 있는 작업을 먼저 하고 Member 를 마지막에 저장)
+- 전체 조회(findAll, streamAll)는 샤드를 차례대로 읽음
+ */
 @Slf4j
 @Repository
-@RequiredArgsConstructor
 public class MemberRepository {
 
     private final EntityManager em;
 
+    private final MemberLookupCache lookupCache;
+
+    // 샤딩이 꺼져 있으면 null
+    @Nullable
+    private final ShardedMemberRepository sharded;
+
+    private final int batchSize;
+
+    public MemberRepository(EntityManager em, MemberLookupCache lookupCache,
+                            ObjectProvider<ShardedMemberRepository> sharded,
+                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.em = em;
+        this.lookupCache = lookupCache;
+        this.sharded = sharded.getIfAvailable();
+        this.batchSize = batchSize;
+    }
+
+    public boolean isSharded() {
+        return sharded != null;
+    }
+
     @Transactional
     public void save(Member member) {
-        log.info("member 저장");
-        em.persist(member);
+        if (sharded != null) {
+            sharded.saveAll(Collections.singletonList(member));
+        } else {
+            log.info("member 저장");
+            em.persist(member);
+        }
+        lookupCache.putAfterCommit(member.getUsername(), member.getId());
+    }
+
+    @Transactional
+    public void saveAll(Collection<Member> members) {
+        saveAll(members, batchSize);
     }
 
+    // 대량 저장: batchSize 마다 flush/clear 해서 메모리 사용량을 일정하게 유지함
+    @Transactional
+    public void saveAll(Collection<Member> members, int batchSize) {
+        log.info("member 일괄 저장. size={}, batchSize={}", members.size(), batchSize);
+        if (sharded != null) {
+            sharded.saveAll(members);
+            return;
+        }
+        JpaBatch.persistAll(em, members, batchSize);
+    }
+
+    @Transactional(readOnly = true)
     public Optional<Member> findByUsername(String username) {
-        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+        if (sharded != null) {
+            return findShardedByUsername(username);
+        }
+
+        // 캐시에 id가 있으면 쿼리 없이 id로 조회 (2차 캐시가 켜져 있으면 DB 조회도 하지 않음)
+        Long cachedId = lookupCache.getId(username);
+        if (cachedId != null) {
+            Member member = em.find(Member.class, cachedId);
+            if (member != null && username.equals(member.getUsername())) {
+                return Optional.of(member);
+            }
+            lookupCache.evict(username);
+        }
+
+        Optional<Member> found = readOnly(em.createQuery("select m from Member m where m.username = :username", Member.class))
                 .setParameter("username", username)
+                .setMaxResults(1) // 한 건만 필요하므로 첫 번째 행에서 조회를 멈춤
                 .getResultList()
                 .stream()
                 .findFirst();
+        found.ifPresent(member -> lookupCache.putAfterCommit(username, member.getId()));
+        return found;
+    }
+
+    // 리포팅 등 대량 조회용: 읽기 전용 트랜잭션에서 호출하면 스냅샷 없이 읽기 전용 엔티티로 가져옴
+    @Transactional(readOnly = true)
+    public List<Member> findAll() {
+        if (sharded != null) {
+            return sharded.findAll();
+        }
+        return readOnly(em.createQuery("select m from Member m", Member.class))
+                .getResultList();
+    }
+
+    // 내보내기용: 호출한 쪽의 읽기 전용 트랜잭션 안에서 소비하고 닫아야 함 (try-with-resources)
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public Stream<Member> streamAll() {
+        if (sharded != null) {
+            return sharded.streamAll();
+        }
+        return streamDetached(em, em.createQuery("select m from Member m order by m.id", Member.class));
     }
 
     public void clear() {
         em.clear();
     }
 
+    // 캐시의 id 에 샤드 번호가 들어있으므로 username 조회 없이 그 샤드에서 id 로 조회함
+    private Optional<Member> findShardedByUsername(String username) {
+        Long cachedId = lookupCache.getId(username);
+        if (cachedId != null) {
+            Optional<Member> member = sharded.findById(cachedId);
+            if (member.isPresent() && username.equals(member.get().getUsername())) {
+                return member;
+            }
+            lookupCache.evict(username);
+        }
+
+        Optional<Member> found = sharded.findByUsername(username);
+        found.ifPresent(member -> lookupCache.putAfterCommit(username, member.getId()));
+        return found;
+    }
+
 }
@@ -1,10 +1,14 @@
 package hello.springtx.propagation;
 
+import hello.springtx.tx.TransactionCoalescingExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -14,11 +18,20 @@ public class MemberService {
 
     private final LogRepository logRepository;
 
+    private final AuditLogWriter auditLogWriter;
+
+    private final TransactionCoalescingExecutor coalescingExecutor;
+
     @Transactional
     public void joinV1(String username) {
         Member member = new Member(username);
         Log logEntity = new Log(username);
 
+        if (memberRepository.isSharded()) {
+            saveLogThenShardedMember(member, logEntity);
+            return;
+        }
+
         log.info("=== MemberRepository 호출 ===");
         memberRepository.save(member);
 
@@ -43,4 +56,79 @@ public class MemberService {
         }
     }
 
+    // joinV2 와 같지만 로그를 세이브포인트(NESTED) 안에서 저장: 로그 저장이 실패해도 회원은 같은 커넥션에서 커밋됨
+    @Transactional
+    public void joinV2Nested(String username) {
+        joinRecoveringLogFailure(username, logRepository::saveNested);
+    }
+
+    // 비교용: 로그를 REQUIRES_NEW 트랜잭션에서 저장 (요청당 커넥션 2개, 회원 트랜잭션 보류 / 재개)
+    @Transactional
+    public void joinV2RequiresNew(String username) {
+        joinRecoveringLogFailure(username, logRepository::saveRequiresNew);
+    }
+
+    @Transactional
+    public void joinV3(String username) {
+        Member member = new Member(username);
+        Log logEntity = new Log(username);
+
+        log.info("=== MemberRepository 호출 ===");
+        memberRepository.save(member);
+
+        // 로그는 커밋 이후에 별도 쓰레드가 배치로 저장하므로 회원 트랜잭션에 로그 저장 시간이 포함되지 않음
+        log.info("=== AuditLogWriter 호출 ===");
+        auditLogWriter.write(logEntity);
+    }
+
+    private void joinRecoveringLogFailure(String username, Consumer<Log> saveLog) {
+        Member member = new Member(username);
+        Log logEntity = new Log(username);
+
+        log.info("=== MemberRepository 호출 ===");
+        memberRepository.save(member);
+
+        try {
+            log.info("=== LogRepository 호출 ===");
+            saveLog.accept(logEntity);
+        } catch (RuntimeException e) {
+            log.info("log 저장에 실패했습니다. logMessage={}", logEntity.getMessage());
+        }
+    }
+
+    /*
+    joinV1 과 같은 작업(회원 + 로그 저장)을 다른 가입 요청들과 물리 트랜잭션 하나로 묶어서 실행함.
+    가입마다 세이브포인트를 가지므로 로그 저장이 실패한 가입만 롤백되고 결과도 가입마다 따로 받음.
+     */
+    public CompletableFuture<Void> joinCoalesced(String username) {
+        return coalescingExecutor.submit(() -> {
+            if (memberRepository.isSharded()) {
+                // 샤드의 Member 는 세이브포인트로 되돌릴 수 없으므로 로그를 먼저 저장
+                saveLogThenShardedMember(new Member(username), new Log(username));
+                return;
+            }
+
+            log.info("=== MemberRepository 호출 ===");
+            memberRepository.save(new Member(username));
+
+            log.info("=== LogRepository 호출 ===");
+            logRepository.save(new Log(username));
+        });
+    }
+
+    /*
+    샤딩이 켜져 있으면 Member 는 username 을 가진 샤드의 트랜잭션에, Log 는 지금 트랜잭션(메인 DB)에 저장됨.
+    두 DB 를 묶는 분산 트랜잭션은 없으므로 실패할 수 있는 로그 저장을 먼저 하고(버퍼에 담기만 함),
+    샤드 트랜잭션을 마지막에 커밋함. 샤드 커밋이 실패하면 예외가 전파되어 로그도 같이 롤백됨.
+    (샤드 커밋 이후 메인 DB 커밋이 실패하면 로그만 유실될 수 있음)
+    joinV2 / joinV3 는 로그 실패가 회원 저장에 영향을 주지 않으므로 순서를 바꾸지 않고 MemberRepository 가 샤드로 보냄.
+     */
+    private void saveLogThenShardedMember(Member member, Log logEntity) {
+        log.info("=== LogRepository 호출 ===");
+        logRepository.save(logEntity);
+
+        log.info("=== MemberRepository 호출 (샤드) ===");
+        memberRepository.save(member);
+    }
+
 }
@@ -0,0 +1,35 @@
+package hello.springtx.settlement;
+
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+기본 정산: 대기 주문의 결제를 다시 시도함 (OrderService.settle).
+잔고 차감과 완료 처리가 청크 트랜잭션 안에서 함께 일어나므로 청크가 롤백되면 차감도 롤백됨.
+잔고가 여전히 부족한 주문은 대기로 남고, 체크포인트는 그 주문을 지나가므로 다음 정산 작업(다른 jobId)에서 다시 시도됨.
+실제 입금 확인 로직은 SettlementProcessor 를 구현해서 교체함.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PendingOrderSettlementProcessor implements SettlementProcessor {
+
+    private final OrderService orderService;
+
+    @Override
+    public void process(List<Order> orders) {
+        int completed = 0;
+        for (Order order : orders) {
+            if (orderService.settle(order)) {
+                completed++;
+            }
+        }
+        log.debug("대기 주문 정산. size={}, completed={}", orders.size(), completed);
+    }
+
+}
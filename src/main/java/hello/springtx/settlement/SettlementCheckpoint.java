@@ -0,0 +1,50 @@
+package hello.springtx.settlement;
+
+import lombok.Data;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Version;
+
+/*
+정산 작업의 파티션별 진행 위치. 청크를 처리하는 트랜잭션 안에서 함께 갱신되므로
+중간에 죽더라도 마지막으로 커밋된 청크 다음(lastOrderId 이후)부터 다시 시작함.
+ */
+@Entity
+@Data
+public class SettlementCheckpoint {
+
+    // jobId:partition
+    @Id
+    private String id;
+
+    private String jobId;
+
+    private int partitionNo;
+
+    private int partitions;
+
+    private long lastOrderId;
+
+    private long processed;
+
+    private boolean completed;
+
+    @Version
+    private Long version;
+
+    public SettlementCheckpoint() {
+    }
+
+    public SettlementCheckpoint(String jobId, int partitionNo, int partitions) {
+        this.id = key(jobId, partitionNo);
+        this.jobId = jobId;
+        this.partitionNo = partitionNo;
+        this.partitions = partitions;
+    }
+
+    public static String key(String jobId, int partitionNo) {
+        return jobId + ":" + partitionNo;
+    }
+
+}
@@ -0,0 +1,11 @@
+package hello.springtx.settlement;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface SettlementCheckpointRepository extends JpaRepository<SettlementCheckpoint, String> {
+
+    List<SettlementCheckpoint> findByJobId(String jobId);
+
+}
@@ -0,0 +1,179 @@
+package hello.springtx.settlement;
+
+import hello.springtx.order.Order;
+import hello.springtx.tx.TransactionRetryExecutor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+대기(payStatus = "대기") 주문 정산 작업
+- 주문을 mod(id, workers) 로 파티션을 나누고 워커 쓰레드 하나가 파티션 하나를 맡음
+- 파티션 안에서는 id > lastOrderId 조건의 keyset 페이지네이션으로 chunkSize 씩 읽음 (offset 처럼 앞 행을 다시 읽지 않음)
+- 청크 처리와 체크포인트 갱신이 한 트랜잭션 -> 청크 단위로 커밋 / 롤백되고, 재시작하면 마지막 커밋 지점부터 이어감
+- 청크는 TransactionRetryExecutor 로 감싸서 락 충돌 / 낙관적 락 실패 시 그 청크만 다시 실행함
+ */
+@Slf4j
+@Component
+public class SettlementJob {
+
+    private static final String PENDING_ORDERS = "select o from Order o " +
+            "where o.payStatus = '대기' and o.id > :lastOrderId and mod(o.id, :partitions) = :partitionNo " +
+            "order by o.id";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final SettlementCheckpointRepository checkpointRepository;
+
+    private final SettlementProcessor defaultProcessor;
+
+    private final TransactionRetryExecutor retryExecutor;
+
+    private final TransactionTemplate txTemplate;
+
+    private final SettlementProperties properties;
+
+    public SettlementJob(SettlementCheckpointRepository checkpointRepository,
+                         SettlementProcessor defaultProcessor,
+                         TransactionRetryExecutor retryExecutor,
+                         PlatformTransactionManager transactionManager,
+                         SettlementProperties properties) {
+        this.checkpointRepository = checkpointRepository;
+        this.defaultProcessor = defaultProcessor;
+        this.retryExecutor = retryExecutor;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.txTemplate.setName("SettlementJob.chunk");
+        this.properties = properties;
+    }
+
+    public Result run(String jobId) {
+        return run(jobId, defaultProcessor);
+    }
+
+    /**
+     * 모든 파티션이 끝날 때까지 기다린다. 실패한 파티션이 있으면 나머지 파티션이 끝난 뒤 첫 번째 예외를 던지며,
+     * 같은 jobId 로 다시 실행하면 커밋된 청크 다음부터 이어서 처리한다.
+     */
+    public Result run(String jobId, SettlementProcessor processor) {
+        int partitions = partitions(jobId);
+        ExecutorService executor = Executors.newFixedThreadPool(partitions, namedThreads(jobId));
+        try {
+            List<Future<?>> futures = new ArrayList<>(partitions);
+            for (int partitionNo = 0; partitionNo < partitions; partitionNo++) {
+                int p = partitionNo;
+                futures.add(executor.submit(() -> runPartition(jobId, p, partitions, processor)));
+            }
+            RuntimeException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException
+                                ? (RuntimeException) e.getCause()
+                                : new IllegalStateException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("정산 작업 대기 중 인터럽트. jobId=" + jobId, e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return result(jobId);
+    }
+
+    public Result result(String jobId) {
+        List<SettlementCheckpoint> checkpoints = checkpointRepository.findByJobId(jobId);
+        long processed = checkpoints.stream().mapToLong(SettlementCheckpoint::getProcessed).sum();
+        boolean completed = !checkpoints.isEmpty() && checkpoints.stream().allMatch(SettlementCheckpoint::isCompleted);
+        return new Result(jobId, processed, completed);
+    }
+
+    // 재시작할 때는 처음 실행했던 파티션 수를 그대로 사용해야 파티션별 lastOrderId 가 유효함
+    private int partitions(String jobId) {
+        List<SettlementCheckpoint> checkpoints = checkpointRepository.findByJobId(jobId);
+        if (checkpoints.isEmpty()) {
+            return properties.getWorkers();
+        }
+        int partitions = checkpoints.get(0).getPartitions();
+        if (partitions != properties.getWorkers()) {
+            log.warn("재시작하는 정산 작업은 처음 파티션 수를 사용함. jobId={}, partitions={}, workers={}",
+                    jobId, partitions, properties.getWorkers());
+        }
+        return partitions;
+    }
+
+    private void runPartition(String jobId, int partitionNo, int partitions, SettlementProcessor processor) {
+        int chunks = 0;
+        while (retryExecutor.execute("SettlementJob.chunk",
+                () -> txTemplate.execute(status -> processChunk(jobId, partitionNo, partitions, processor)))) {
+            chunks++;
+        }
+        log.info("정산 파티션 완료. jobId={}, partition={}, chunks={}", jobId, partitionNo, chunks);
+    }
+
+    // 청크를 처리했으면 true, 더 처리할 주문이 없으면 false
+    private boolean processChunk(String jobId, int partitionNo, int partitions, SettlementProcessor processor) {
+        SettlementCheckpoint checkpoint = checkpointRepository.findById(SettlementCheckpoint.key(jobId, partitionNo))
+                .orElseGet(() -> new SettlementCheckpoint(jobId, partitionNo, partitions));
+        if (checkpoint.isCompleted()) {
+            return false;
+        }
+
+        List<Order> orders = em.createQuery(PENDING_ORDERS, Order.class)
+                .setParameter("lastOrderId", checkpoint.getLastOrderId())
+                .setParameter("partitions", partitions)
+                .setParameter("partitionNo", partitionNo)
+                .setMaxResults(properties.getChunkSize())
+                .getResultList();
+
+        if (orders.isEmpty()) {
+            checkpoint.setCompleted(true);
+            checkpointRepository.save(checkpoint);
+            return false;
+        }
+
+        processor.process(orders);
+
+        checkpoint.setLastOrderId(orders.get(orders.size() - 1).getId());
+        checkpoint.setProcessed(checkpoint.getProcessed() + orders.size());
+        checkpointRepository.save(checkpoint);
+        return true;
+    }
+
+    private static ThreadFactory namedThreads(String jobId) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "settlement-" + jobId + "-" + sequence.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Value
+    public static class Result {
+        String jobId;
+        long processed;
+        boolean completed;
+    }
+
+}
@@ -0,0 +1,16 @@
+package hello.springtx.settlement;
+
+import hello.springtx.order.Order;
+
+import java.util.List;
+
+/**
+ * 대기 주문 청크를 정산한다. 청크 트랜잭션 안에서 호출되며, 전달된 주문은 영속 상태이므로
+ * 상태를 바꾸면 청크 커밋 시 함께 반영된다. 예외를 던지면 청크 전체가 롤백된다.
+ */
+@FunctionalInterface
+public interface SettlementProcessor {
+
+    void process(List<Order> orders);
+
+}
@@ -0,0 +1,16 @@
+package hello.springtx.settlement;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("springtx.settlement")
+public class SettlementProperties {
+
+    // 하나의 트랜잭션에서 처리할 주문 수
+    private int chunkSize = 500;
+
+    // 파티션(mod(id, workers)) 수 = 워커 쓰레드 수. 같은 jobId 를 재시작할 때는 바꿀 수 없음
+    private int workers = 4;
+
+}
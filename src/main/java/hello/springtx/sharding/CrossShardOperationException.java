@@ -0,0 +1,15 @@
+package hello.springtx.sharding;
+
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+/*
+한 샤드의 트랜잭션 안에서 다른 샤드의 데이터를 건드리려고 할 때 발생.
+샤드 사이에는 분산 트랜잭션이 없으므로 조용히 두 번째 트랜잭션을 여는 대신 명시적으로 거부함.
+ */
+public class CrossShardOperationException extends InvalidDataAccessApiUsageException {
+
+    public CrossShardOperationException(String message) {
+        super(message);
+    }
+
+}
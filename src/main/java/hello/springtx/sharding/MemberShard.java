@@ -0,0 +1,36 @@
+package hello.springtx.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/*
+샤드 하나: 커넥션 풀, 트랜잭션 매니저, JdbcTemplate 을 한 묶음으로 가짐.
+트랜잭션 매니저는 빈으로 등록하지 않음 (빈으로 등록하면 @Transactional 이 어느 매니저를 쓸지 모호해짐).
+ */
+@Getter
+public class MemberShard {
+
+    private final int index;
+
+    private final HikariDataSource dataSource;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    MemberShard(int index, HikariDataSource dataSource) {
+        this.index = index;
+        this.dataSource = dataSource;
+        this.transactionManager = new DataSourceTransactionManager(dataSource);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public String toString() {
+        return "member-shard-" + index;
+    }
+
+}
@@ -0,0 +1,26 @@
+package hello.springtx.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("springtx.member.sharding")
+public class MemberShardingProperties {
+
+    private boolean enabled;
+
+    // 샤드 순서가 곧 샤드 번호이므로 운영 중에 순서를 바꾸거나 중간에 끼워 넣으면 안 됨
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username = "sa";
+        private String password = "";
+        private int maximumPoolSize = 10;
+    }
+
+}
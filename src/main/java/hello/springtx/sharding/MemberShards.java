@@ -0,0 +1,136 @@
+package hello.springtx.sharding;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+username 해시로 Member 를 N 개의 DB 에 나눠서 저장함.
+- 샤드마다 커넥션 풀과 트랜잭션 매니저가 따로 있으므로 서로 다른 샤드의 쓰기는 서로를 기다리지 않음
+- 트랜잭션은 샤드 하나 안에서만 열 수 있음. 다른 샤드의 트랜잭션이 진행 중이면 CrossShardOperationException
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "springtx.member.sharding", name = "enabled")
+public class MemberShards implements DisposableBean {
+
+    private final List<MemberShard> shards;
+
+    /*
+    현재 쓰레드에서 execute() 로 연 샤드 트랜잭션.
+    TransactionSynchronizationManager.hasResource(dataSource) 는 바깥에 다른 트랜잭션(JPA)이 있으면
+    트랜잭션 없이 실행한 조회에도 커넥션이 바인딩되어 true 가 되므로 직접 추적함.
+     */
+    private final ThreadLocal<MemberShard> current = new ThreadLocal<>();
+
+    public MemberShards(MemberShardingProperties properties) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("springtx.member.sharding.shards 가 비어있음");
+        }
+        List<MemberShard> shards = new ArrayList<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            MemberShard shard = new MemberShard(i, pool(i, properties.getShards().get(i)));
+            createSchema(shard);
+            shards.add(shard);
+        }
+        this.shards = Collections.unmodifiableList(shards);
+        log.info("Member 샤드 구성. shards={}", shards.size());
+    }
+
+    public List<MemberShard> all() {
+        return shards;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * username 을 가진 Member 가 저장되는 샤드
+     */
+    public MemberShard shardOf(String username) {
+        int hash = username.hashCode();
+        hash ^= hash >>> 16; // 하위 비트만 다른 비슷한 username 도 고르게 퍼지도록 상위 비트를 섞음
+        return shards.get(Math.floorMod(hash, shards.size()));
+    }
+
+    /**
+     * id 에 샤드 번호가 들어있으므로 id 만으로도 샤드를 찾을 수 있음 (ShardedMemberRepository.nextId)
+     */
+    public MemberShard shardOf(long id) {
+        return shards.get((int) Math.floorMod(id, (long) shards.size()));
+    }
+
+    /**
+     * username 을 가진 샤드의 트랜잭션 안에서 실행한다. 같은 샤드의 트랜잭션이 진행 중이면 참여한다.
+     */
+    public <T> T execute(String username, TransactionCallback<T> action) {
+        MemberShard shard = checkOwner(username);
+        MemberShard previous = current.get();
+        current.set(shard);
+        try {
+            return new TransactionTemplate(shard.getTransactionManager()).execute(action);
+        } finally {
+            if (previous == null) {
+                current.remove();
+            }
+        }
+    }
+
+    /**
+     * 다른 샤드의 트랜잭션이 진행 중이면 예외, 아니면 username 의 샤드를 반환한다.
+     */
+    MemberShard checkOwner(String username) {
+        MemberShard owner = shardOf(username);
+        MemberShard active = current.get();
+        if (active != null && active != owner) {
+            throw new CrossShardOperationException(
+                    active + " 트랜잭션 안에서 " + owner + " 의 Member 에 접근할 수 없음. username=" + username);
+        }
+        return owner;
+    }
+
+    /**
+     * 모든 샤드에 걸친 작업(집계 등) 전에 호출. 어느 샤드든 트랜잭션이 진행 중이면 예외.
+     */
+    void checkNoShardTransaction(String operation) {
+        MemberShard active = current.get();
+        if (active != null) {
+            throw new CrossShardOperationException(active + " 트랜잭션 안에서 전체 샤드 작업을 할 수 없음. operation=" + operation);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (MemberShard shard : shards) {
+            shard.getDataSource().close();
+        }
+    }
+
+    private HikariDataSource pool(int index, MemberShardingProperties.Shard properties) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("member-shard-" + index);
+        config.setJdbcUrl(properties.getUrl());
+        config.setUsername(properties.getUsername());
+        config.setPassword(properties.getPassword());
+        config.setMaximumPoolSize(properties.getMaximumPoolSize());
+        return new HikariDataSource(config);
+    }
+
+    private void createSchema(MemberShard shard) {
+        shard.getJdbcTemplate().execute("create sequence if not exists member_seq start with 1 increment by 1");
+        shard.getJdbcTemplate().execute("create table if not exists member" +
+                " (id bigint not null primary key, username varchar(255), version bigint)");
+        shard.getJdbcTemplate().execute("create index if not exists idx_member_username on member (username)");
+    }
+
+}
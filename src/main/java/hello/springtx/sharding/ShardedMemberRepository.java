@@ -0,0 +1,110 @@
+package hello.springtx.sharding;
+
+import hello.springtx.propagation.Member;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/*
+샤드에 저장된 Member 를 JDBC 로 다룸.
+진행 중인 샤드 트랜잭션이 있으면 DataSourceUtils 를 통해 그 트랜잭션의 커넥션을 사용하고,
+없으면 각 문장이 자동 커밋으로 실행됨. 트랜잭션은 MemberShards.execute() 로 시작함.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "springtx.member.sharding", name = "enabled")
+public class ShardedMemberRepository {
+
+    private static final RowMapper<Member> ROW_MAPPER = (rs, rowNum) -> {
+        Member member = new Member(rs.getString("username"));
+        member.setId(rs.getLong("id"));
+        member.setVersion(rs.getLong("version"));
+        return member;
+    };
+
+    private final MemberShards shards;
+
+    public void save(Member member) {
+        MemberShard shard = shards.checkOwner(member.getUsername());
+        log.info("member 저장. shard={}", shard);
+        member.setId(nextId(shard));
+        member.setVersion(0L);
+        shard.getJdbcTemplate().update("insert into member (id, username, version) values (?, ?, ?)",
+                member.getId(), member.getUsername(), member.getVersion());
+    }
+
+    /**
+     * 샤드별로 모아서 샤드마다 트랜잭션 하나로 저장한다. 샤드 사이에는 원자성이 없다.
+     */
+    public void saveAll(Collection<Member> members) {
+        Map<MemberShard, List<Member>> byShard = new LinkedHashMap<>();
+        for (Member member : members) {
+            byShard.computeIfAbsent(shards.shardOf(member.getUsername()), shard -> new ArrayList<>()).add(member);
+        }
+        for (List<Member> group : byShard.values()) {
+            shards.execute(group.get(0).getUsername(), status -> {
+                group.forEach(this::save);
+                return null;
+            });
+        }
+    }
+
+    public Optional<Member> findById(long id) {
+        MemberShard shard = shards.shardOf(id);
+        List<Member> found = shard.getJdbcTemplate().query(
+                "select id, username, version from member where id = ?", ROW_MAPPER, id);
+        return found.stream().findFirst();
+    }
+
+    public Optional<Member> findByUsername(String username) {
+        MemberShard shard = shards.checkOwner(username);
+        List<Member> found = shard.getJdbcTemplate().query(
+                "select id, username, version from member where username = ? limit 1", ROW_MAPPER, username);
+        return found.stream().findFirst();
+    }
+
+    // 모든 샤드를 차례대로 조회하므로 샤드 트랜잭션 밖에서만 호출할 수 있음 (findAll, streamAll 도 같음)
+    public long count() {
+        shards.checkNoShardTransaction("count");
+        long count = 0;
+        for (MemberShard shard : shards.all()) {
+            count += shard.getJdbcTemplate().queryForObject("select count(*) from member", Long.class);
+        }
+        return count;
+    }
+
+    public List<Member> findAll() {
+        shards.checkNoShardTransaction("findAll");
+        List<Member> result = new ArrayList<>();
+        for (MemberShard shard : shards.all()) {
+            result.addAll(shard.getJdbcTemplate().query("select id, username, version from member", ROW_MAPPER));
+        }
+        return result;
+    }
+
+    // 샤드를 차례대로 id 순서로 읽음 (전체 id 순서는 아님). 다 읽은 샤드의 커서는 다음 샤드로 넘어갈 때 닫힘
+    public Stream<Member> streamAll() {
+        shards.checkNoShardTransaction("streamAll");
+        return shards.all().stream()
+                .flatMap(shard -> shard.getJdbcTemplate().queryForStream(
+                        "select id, username, version from member order by id", ROW_MAPPER));
+    }
+
+    // 샤드별 시퀀스 값에 샤드 번호를 붙여서 전체 샤드에서 유일한 id 를 만듦 (id % 샤드 수 = 샤드 번호)
+    private long nextId(MemberShard shard) {
+        Long sequence = shard.getJdbcTemplate().queryForObject("select next value for member_seq", Long.class);
+        return sequence * shards.size() + shard.getIndex();
+    }
+
+}
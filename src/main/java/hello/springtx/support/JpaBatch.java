@@ -0,0 +1,43 @@
+package hello.springtx.support;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+
+/*
+대량 저장 시 영속성 컨텍스트가 계속 커지지 않도록 batchSize 마다 flush() / clear()를 호출함.
+hibernate.jdbc.batch_size 와 같은 크기로 flush 하면, 한 번의 flush가 하나의 JDBC 배치로 전송됨.
+(주의) clear()는 현재 트랜잭션의 영속성 컨텍스트 전체를 비우므로, 호출한 쪽에서 관리하던 엔티티도 준영속 상태가 됨.
+ */
+public final class JpaBatch {
+
+    private JpaBatch() {
+    }
+
+    public static int persistAll(EntityManager em, Iterable<?> entities, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+
+        Session session = em.unwrap(Session.class);
+        Integer previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+
+        int count = 0;
+        try {
+            for (Object entity : entities) {
+                em.persist(entity);
+                if (++count % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.flush();
+            em.clear();
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+        }
+        return count;
+    }
+
+}
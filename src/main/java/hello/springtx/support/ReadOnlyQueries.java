@@ -0,0 +1,50 @@
+package hello.springtx.support;
+
+import org.hibernate.annotations.QueryHints;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.stream.Stream;
+
+/*
+조회 전용 쿼리 힌트
+- READ_ONLY  : 조회한 엔티티의 스냅샷(변경 감지용 원본)을 만들지 않음 -> 힙 사용량 감소, flush 시 dirty checking 대상에서 제외
+- FETCH_SIZE : 결과를 fetchSize 단위로 나눠서 가져옴 -> 큰 결과를 한 번에 메모리에 올리지 않음
+READ_ONLY 는 현재 트랜잭션이 readOnly 일 때만 줌.
+@Transactional(readOnly = true) 조회 메서드도 호출한 쪽의 쓰기 트랜잭션에 참여하면 쓰기 트랜잭션 그대로이므로,
+거기서 읽기 전용으로 가져오면 호출한 쪽이 엔티티를 수정해도 변경 감지가 되지 않아 변경이 조용히 사라짐.
+(같은 이유로 em.find 등 힌트 없이 가져오는 경로와도 결과가 같아짐)
+ */
+public final class ReadOnlyQueries {
+
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    private ReadOnlyQueries() {
+    }
+
+    public static <T> TypedQuery<T> readOnly(TypedQuery<T> query) {
+        return readOnly(query, DEFAULT_FETCH_SIZE);
+    }
+
+    public static <T> TypedQuery<T> readOnly(TypedQuery<T> query, int fetchSize) {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            query.setHint(QueryHints.READ_ONLY, true);
+        }
+        return query.setHint(QueryHints.FETCH_SIZE, fetchSize);
+    }
+
+    /*
+    대량 내보내기용 스트림
+    getResultStream()은 forward-only ScrollableResults 위에서 fetchSize 단위로 행을 가져오고,
+    각 엔티티를 꺼내는 즉시 영속성 컨텍스트에서 분리(detach)하므로 행 수와 관계없이 힙 사용량이 일정함.
+    어차피 분리되어 변경 감지 대상이 아니므로 트랜잭션 종류와 관계없이 READ_ONLY 로 가져옴.
+    커서는 트랜잭션의 커넥션을 사용하므로 스트림은 트랜잭션 안에서 소비하고 닫아야 함.
+     */
+    public static <T> Stream<T> streamDetached(EntityManager em, TypedQuery<T> query) {
+        return readOnly(query).setHint(QueryHints.READ_ONLY, true)
+                .getResultStream()
+                .peek(em::detach);
+    }
+
+}
@@ -0,0 +1,16 @@
+package hello.springtx.tx;
+
+import org.springframework.dao.TransientDataAccessException;
+
+/*
+같은 배치의 다른 작업이 물리 트랜잭션을 rollbackOnly 로 마킹해서, 이미 성공한 작업의 쓰기까지 함께 롤백되었을 때 발생.
+작업은 다시 실행하지 않으므로 (작업 안의 부수 효과가 두 번 일어나지 않도록) 다시 시도할지는 호출한 쪽이 결정함.
+일시적인 실패(TransientDataAccessException)이므로 TransactionRetryExecutor 로 감싸면 그대로 재시도됨.
+ */
+public class CoalescedBatchRolledBackException extends TransientDataAccessException {
+
+    public CoalescedBatchRolledBackException(String message) {
+        super(message);
+    }
+
+}
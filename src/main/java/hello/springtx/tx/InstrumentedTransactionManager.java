@@ -0,0 +1,167 @@
+package hello.springtx.tx;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+실제 트랜잭션 매니저(JpaTransactionManager 등)를 감싸서 TransactionMetrics에 기록함.
+getTransaction()이 돌려주는 상태 객체를 감싸서 시작 시각과 Meter를 들고 다니므로,
+커밋 / 롤백 시점에 별도 조회 없이 바로 기록할 수 있음.
+ */
+public class InstrumentedTransactionManager implements PlatformTransactionManager {
+
+    private final PlatformTransactionManager delegate;
+
+    private final TransactionMetrics metrics;
+
+    public InstrumentedTransactionManager(PlatformTransactionManager delegate, TransactionMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public PlatformTransactionManager getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public TransactionStatus getTransaction(@Nullable TransactionDefinition definition) throws TransactionException {
+        TransactionDefinition def = definition != null ? definition : TransactionDefinition.withDefaults();
+        int propagation = def.getPropagationBehavior();
+        boolean suspends = (propagation == TransactionDefinition.PROPAGATION_REQUIRES_NEW
+                || propagation == TransactionDefinition.PROPAGATION_NOT_SUPPORTED)
+                && TransactionSynchronizationManager.isActualTransactionActive();
+
+        long start = System.nanoTime();
+        TransactionStatus status = delegate.getTransaction(definition);
+        long begun = System.nanoTime();
+
+        TransactionMetrics.Meters meters = metrics.meters(def.getName());
+        if (suspends) {
+            meters.suspended();
+        }
+        if (status.isNewTransaction()) {
+            meters.begun(begun - start);
+        }
+        return new InstrumentedTransactionStatus(status, meters, begun, suspends);
+    }
+
+    @Override
+    public void commit(TransactionStatus status) throws TransactionException {
+        InstrumentedTransactionStatus instrumented = (InstrumentedTransactionStatus) status;
+        TransactionMetrics.Meters meters = instrumented.meters;
+        Counter outcome = instrumented.isRollbackOnly() ? meters.rollbackOnly() : meters.commit();
+        try {
+            delegate.commit(instrumented.delegate);
+        } catch (UnexpectedRollbackException e) {
+            outcome = meters.rollbackOnly();
+            throw e;
+        } catch (RuntimeException | Error e) {
+            outcome = meters.failed();
+            throw e;
+        } finally {
+            completed(instrumented, outcome);
+        }
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) throws TransactionException {
+        InstrumentedTransactionStatus instrumented = (InstrumentedTransactionStatus) status;
+        try {
+            delegate.rollback(instrumented.delegate);
+        } finally {
+            if (instrumented.isParticipating()) {
+                instrumented.meters.markedRollbackOnly();
+            }
+            completed(instrumented, instrumented.meters.rollback());
+        }
+    }
+
+    private void completed(InstrumentedTransactionStatus status, Counter outcome) {
+        if (status.isNewTransaction()) {
+            status.meters.completed(System.nanoTime() - status.startNanos, outcome);
+        }
+        if (status.suspends) {
+            status.meters.resumed();
+        }
+    }
+
+    static class InstrumentedTransactionStatus implements TransactionStatus {
+
+        final TransactionStatus delegate;
+
+        final TransactionMetrics.Meters meters;
+
+        final long startNanos;
+
+        final boolean suspends;
+
+        InstrumentedTransactionStatus(TransactionStatus delegate, TransactionMetrics.Meters meters, long startNanos, boolean suspends) {
+            this.delegate = delegate;
+            this.meters = meters;
+            this.startNanos = startNanos;
+            this.suspends = suspends;
+        }
+
+        // 기존 물리 트랜잭션에 참여 중인 (savepoint가 없는) 논리 트랜잭션인지 여부
+        boolean isParticipating() {
+            return delegate instanceof DefaultTransactionStatus
+                    && ((DefaultTransactionStatus) delegate).hasTransaction()
+                    && !delegate.isNewTransaction()
+                    && !delegate.hasSavepoint();
+        }
+
+        @Override
+        public boolean isNewTransaction() {
+            return delegate.isNewTransaction();
+        }
+
+        @Override
+        public boolean hasSavepoint() {
+            return delegate.hasSavepoint();
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            delegate.setRollbackOnly();
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return delegate.isRollbackOnly();
+        }
+
+        @Override
+        public void flush() {
+            delegate.flush();
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return delegate.isCompleted();
+        }
+
+        @Override
+        public Object createSavepoint() throws TransactionException {
+            return delegate.createSavepoint();
+        }
+
+        @Override
+        public void rollbackToSavepoint(Object savepoint) throws TransactionException {
+            delegate.rollbackToSavepoint(savepoint);
+        }
+
+        @Override
+        public void releaseSavepoint(Object savepoint) throws TransactionException {
+            delegate.releaseSavepoint(savepoint);
+        }
+
+    }
+
+}
@@ -0,0 +1,22 @@
+package hello.springtx.tx;
+
+import org.springframework.boot.autoconfigure.transaction.PlatformTransactionManagerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+/*
+JpaTransactionManager 는 기본적으로 NESTED 전파를 허용하지 않음 (NestedTransactionNotSupportedException).
+HibernateJpaDialect 가 트랜잭션의 JDBC 커넥션을 노출하므로 NESTED 는 그 커넥션의 세이브포인트로 동작함.
+(주의) 세이브포인트로 롤백해도 영속성 컨텍스트는 되돌아가지 않으므로, 세이브포인트 안에서 persist 한 엔티티는
+롤백 전에 flush 되어 있어야 하고 롤백 후에는 영속성 컨텍스트에서 제거해야 함 (TransactionCoalescingExecutor 참고)
+ */
+@Configuration
+public class NestedTransactionConfig {
+
+    @Bean
+    public PlatformTransactionManagerCustomizer<JpaTransactionManager> nestedTransactionCustomizer() {
+        return transactionManager -> transactionManager.setNestedTransactionAllowed(true);
+    }
+
+}
@@ -0,0 +1,95 @@
+package hello.springtx.tx;
+
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/*
+UnitOfWorkBuffer 를 현재 트랜잭션의 리소스로 바인딩하고 트랜잭션 생명주기에 맞춰 flush / discard 함.
+- beforeCommit    : 버퍼를 flush (아직 같은 트랜잭션이므로 함께 커밋됨)
+- afterCompletion : 바인딩 해제, 커밋되지 않았다면 discard (롤백 시 쓰기 비용 없음)
+- suspend / resume: REQUIRES_NEW 등으로 트랜잭션이 보류되면 바인딩을 풀었다가 재개 시 다시 바인딩
+  -> 새 트랜잭션은 자기 버퍼를 따로 가짐
+ */
+public final class TransactionBuffers {
+
+    private TransactionBuffers() {
+    }
+
+    /**
+     * 현재 트랜잭션에 key 로 바인딩된 버퍼를 반환하고, 없으면 만들어서 바인딩한다.
+     */
+    public static <B extends UnitOfWorkBuffer> B bind(Object key, Supplier<B> factory) {
+        B buffer = current(key);
+        if (buffer != null) {
+            return buffer;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("트랜잭션 동기화가 활성화된 상태에서만 버퍼를 사용할 수 있음. key=" + key);
+        }
+        buffer = factory.get();
+        TransactionSynchronizationManager.bindResource(key, buffer);
+        TransactionSynchronizationManager.registerSynchronization(new BufferSynchronization(key, buffer));
+        return buffer;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <B extends UnitOfWorkBuffer> B current(Object key) {
+        return (B) TransactionSynchronizationManager.getResource(key);
+    }
+
+    /**
+     * 현재 트랜잭션에 바인딩된 모든 버퍼
+     */
+    public static List<UnitOfWorkBuffer> currentBuffers() {
+        List<UnitOfWorkBuffer> buffers = new ArrayList<>();
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof UnitOfWorkBuffer) {
+                buffers.add((UnitOfWorkBuffer) resource);
+            }
+        }
+        return buffers;
+    }
+
+    private static class BufferSynchronization implements TransactionSynchronization {
+
+        private final Object key;
+
+        private final UnitOfWorkBuffer buffer;
+
+        BufferSynchronization(Object key, UnitOfWorkBuffer buffer) {
+            this.key = key;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(key);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(key, buffer);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            buffer.flush();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(key);
+            if (status != STATUS_COMMITTED) {
+                buffer.discard();
+            }
+        }
+
+    }
+
+}
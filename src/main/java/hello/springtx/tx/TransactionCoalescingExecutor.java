@@ -0,0 +1,293 @@
+package hello.springtx.tx;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+짧은 시간(window) 안에 제출된 작은 트랜잭션 작업들을 물리 트랜잭션 하나로 묶어서 커밋함 (group commit).
+- 작업마다 NESTED(세이브포인트) 트랜잭션 안에서 실행하므로 실패한 작업은 자기 세이브포인트까지만 롤백되고
+  호출한 쪽은 작업마다 따로 성공 / 실패 결과를 받음 (성공 결과는 배치가 커밋된 뒤에 전달됨)
+- 세이브포인트 롤백은 영속성 컨텍스트와 TransactionBuffers 를 되돌리지 않으므로,
+  작업이 성공하면 바로 flush 해서 쓰기를 세이브포인트 안에 넣고, 실패하면 영속성 컨텍스트를 비우고 버퍼를 버림
+- 작업이 등록한 트랜잭션 동기화(afterCommit 훅, TransactionBuffers 등)도 세이브포인트 범위로 다룸
+  작업이 실패하면 그 작업이 등록한 동기화만 afterCompletion(ROLLED_BACK) 으로 정리하고 배치에서 빼므로 배치가 커밋되어도 실행되지 않음
+- 실패한 작업이 물리 트랜잭션을 rollbackOnly 로 마킹하면 (@Transactional 메서드가 참여 중에 런타임 예외를 던진 경우 등)
+  세이브포인트로는 되돌릴 수 없으므로 배치 전체를 롤백함
+  이미 성공한 작업은 다시 실행하지 않고 (작업 안의 부수 효과가 두 번 일어나지 않도록) CoalescedBatchRolledBackException 으로 실패 처리하고,
+  아직 실행하지 않은 작업만 새 배치로 묶어서 실행함 -> 작업은 언제나 한 번만 실행됨
+작업은 호출한 쪽 쓰레드가 아니라 워커 쓰레드에서 실행되므로 호출한 쪽의 트랜잭션에는 참여하지 않음.
+ */
+@Slf4j
+@Component
+public class TransactionCoalescingExecutor implements MeterBinder {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final TransactionCoalescingProperties properties;
+
+    private final DefaultTransactionDefinition batchDefinition;
+
+    private final DefaultTransactionDefinition unitDefinition;
+
+    private final BlockingQueue<Unit<?>> queue;
+
+    private final AtomicLong units = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rebatches = new AtomicLong();
+
+    private volatile boolean running;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    public TransactionCoalescingExecutor(PlatformTransactionManager transactionManager, TransactionCoalescingProperties properties) {
+        this.transactionManager = transactionManager;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        this.batchDefinition = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchDefinition.setName("TransactionCoalescingExecutor.batch");
+        this.unitDefinition = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NESTED);
+        this.unitDefinition.setName("TransactionCoalescingExecutor.unit");
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            Thread worker = new Thread(this::runWorker, "tx-coalescing-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(properties.getWindow().toMillis() * 2 + 1_000);
+        }
+        Unit<?> unit;
+        while ((unit = queue.poll()) != null) {
+            unit.future.completeExceptionally(new RejectedExecutionException("TransactionCoalescingExecutor 종료됨"));
+        }
+    }
+
+    /**
+     * 작업을 다른 작업들과 같은 물리 트랜잭션의 세이브포인트 안에서 실행한다.
+     * 작업이 성공하고 배치가 커밋되면 결과로, 작업이 실패하면 그 예외로 완료된다.
+     * 같은 배치의 다른 작업 때문에 배치 전체가 롤백되면 CoalescedBatchRolledBackException 으로 완료된다 (작업은 다시 실행하지 않음).
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        Unit<T> unit = new Unit<>(task);
+        if (!running || !queue.offer(unit)) {
+            unit.future.completeExceptionally(new RejectedExecutionException("TransactionCoalescingExecutor 대기열이 가득 참"));
+        }
+        return unit.future;
+    }
+
+    public CompletableFuture<Void> submit(Runnable task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    // 실행한 작업 수
+    public long getUnits() {
+        return units.get();
+    }
+
+    // 커밋한 물리 트랜잭션 수
+    public long getBatches() {
+        return batches.get();
+    }
+
+    // rollbackOnly 로 배치 전체를 롤백하고 남은 작업을 새 배치로 실행한 횟수
+    public long getRebatches() {
+        return rebatches.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tx.coalescing.units", units, AtomicLong::get).register(registry);
+        FunctionCounter.builder("tx.coalescing.batches", batches, AtomicLong::get).register(registry);
+        FunctionCounter.builder("tx.coalescing.rebatches", rebatches, AtomicLong::get).register(registry);
+    }
+
+    private void runWorker() {
+        List<Unit<?>> batch = new ArrayList<>(properties.getMaxBatchSize());
+        long windowNanos = properties.getWindow().toNanos();
+
+        while (running) {
+            try {
+                Unit<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < properties.getMaxBatchSize()) {
+                    Unit<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                execute(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void execute(List<Unit<?>> batch) {
+        List<Unit<?>> pending = new ArrayList<>(batch);
+        while (!pending.isEmpty()) {
+            try {
+                pending = executeOnce(pending);
+            } catch (RuntimeException | Error e) {
+                // 배치 트랜잭션 시작 / 커밋 자체가 실패하면 남은 작업 모두 실패
+                log.warn("coalescing 배치 실패. size={}", pending.size(), e);
+                for (Unit<?> unit : pending) {
+                    unit.future.completeExceptionally(e);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 작업들을 물리 트랜잭션 하나에서 실행한다.
+     *
+     * @return 배치가 rollbackOnly 가 되어 새 배치에서 실행해야 하는 (아직 실행하지 않은) 작업들. 커밋되었으면 빈 목록
+     */
+    private List<Unit<?>> executeOnce(List<Unit<?>> pending) {
+        List<Unit<?>> succeeded = new ArrayList<>(pending.size());
+        TransactionStatus batchStatus = transactionManager.getTransaction(batchDefinition);
+        try {
+            for (int i = 0; i < pending.size(); i++) {
+                Unit<?> unit = pending.get(i);
+                units.incrementAndGet();
+                if (run(unit)) {
+                    succeeded.add(unit);
+                } else if (batchStatus.isRollbackOnly()) {
+                    transactionManager.rollback(batchStatus);
+                    rebatches.incrementAndGet();
+                    log.info("작업이 배치 트랜잭션을 rollbackOnly 로 마킹함. 롤백된 작업={}, 새 배치로 실행할 작업={}",
+                            succeeded.size(), pending.size() - i - 1);
+                    for (Unit<?> rolledBack : succeeded) {
+                        rolledBack.future.completeExceptionally(new CoalescedBatchRolledBackException(
+                                "같은 배치의 다른 작업이 트랜잭션을 rollbackOnly 로 마킹해서 함께 롤백됨"));
+                    }
+                    return new ArrayList<>(pending.subList(i + 1, pending.size()));
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            transactionManager.rollback(batchStatus);
+            throw e;
+        }
+
+        transactionManager.commit(batchStatus);
+        batches.incrementAndGet();
+        for (Unit<?> unit : succeeded) {
+            unit.complete();
+        }
+        return new ArrayList<>();
+    }
+
+    // 세이브포인트 안에서 작업을 실행하고, 실패하면 작업을 그 예외로 완료한다
+    private boolean run(Unit<?> unit) {
+        List<TransactionSynchronization> registered = TransactionSynchronizationManager.getSynchronizations();
+        TransactionStatus savepoint = transactionManager.getTransaction(unitDefinition);
+        try {
+            unit.call();
+            em.flush();
+            for (UnitOfWorkBuffer buffer : TransactionBuffers.currentBuffers()) {
+                buffer.flush();
+            }
+        } catch (Throwable e) {
+            transactionManager.rollback(savepoint);
+            em.clear();
+            for (UnitOfWorkBuffer buffer : TransactionBuffers.currentBuffers()) {
+                buffer.discard();
+            }
+            discardSynchronizationsSince(registered);
+            unit.future.completeExceptionally(e);
+            return false;
+        }
+        transactionManager.commit(savepoint); // 세이브포인트 해제
+        return true;
+    }
+
+    /*
+    작업이 실행 중에 등록한 동기화를 배치에서 빼고, 롤백된 것으로 완료 처리함.
+    TransactionSynchronizationManager 는 동기화 하나만 빼는 API 가 없으므로 작업 전의 목록으로 다시 등록함.
+     */
+    private void discardSynchronizationsSince(List<TransactionSynchronization> registered) {
+        List<TransactionSynchronization> added = new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+        added.removeAll(registered);
+        if (added.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        for (TransactionSynchronization synchronization : registered) {
+            TransactionSynchronizationManager.registerSynchronization(synchronization);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(added, TransactionSynchronization.STATUS_ROLLED_BACK);
+        log.info("실패한 작업이 등록한 트랜잭션 동기화를 정리함. count={}", added.size());
+    }
+
+    private static class Unit<T> {
+
+        final Callable<T> task;
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        T result;
+
+        Unit(Callable<T> task) {
+            this.task = task;
+        }
+
+        void call() throws Exception {
+            result = task.call();
+        }
+
+        void complete() {
+            future.complete(result);
+        }
+
+    }
+
+}
@@ -0,0 +1,24 @@
+package hello.springtx.tx;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("springtx.tx.coalescing")
+public class TransactionCoalescingProperties {
+
+    // 첫 작업이 들어온 뒤 같은 트랜잭션에 묶을 작업을 기다리는 최대 시간 (호출한 쪽의 지연 시간이 이만큼 늘어남)
+    private Duration window = Duration.ofMillis(5);
+
+    // 한 트랜잭션에 묶을 최대 작업 수
+    private int maxBatchSize = 100;
+
+    // 배치를 실행하는 쓰레드 수 (동시에 열리는 물리 트랜잭션 수)
+    private int workers = 2;
+
+    // 대기열에 쌓아둘 수 있는 최대 작업 수 (넘치면 RejectedExecutionException)
+    private int capacity = 10_000;
+
+}
@@ -0,0 +1,114 @@
+package hello.springtx.tx;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+MemberService / OrderService 같은 트랜잭션 호출을 별도 쓰레드에서 실행함.
+트랜잭션 컨텍스트(TransactionSynchronizationManager)는 ThreadLocal 이므로 작업 하나의 트랜잭션은 그 작업을 실행하는 쓰레드 안에서만 시작 / 종료됨.
+
+VIRTUAL 모드
+- 작업마다 가상 쓰레드를 만들기 때문에 동시 요청 수만큼 플랫폼 쓰레드를 들고 있지 않아도 됨
+- 대신 동시에 커넥션을 요청하는 작업 수를 세마포어로 풀 크기까지로 제한함
+  제한이 없으면 수천 개의 가상 쓰레드가 커넥션 풀 안에서 대기하다가 connectionTimeout 으로 실패하고,
+  JDBC 드라이버 / Hibernate 의 synchronized 구간에서 대기하면 캐리어 쓰레드가 고정(pinning)됨
+  세마포어 대기는 j.u.c 기반이라 가상 쓰레드가 캐리어에서 내려간 채로 기다림
+- 소스는 Java 11 로 컴파일되므로 Executors.newVirtualThreadPerTaskExecutor 는 리플렉션으로 찾고,
+  Java 21 미만에서 실행하면 PLATFORM 모드로 동작함
+ */
+@Slf4j
+@Component
+public class TransactionExecutor {
+
+    private final ExecutorService executor;
+
+    private final Semaphore permits;
+
+    private final TransactionExecutorProperties properties;
+
+    private final boolean virtual;
+
+    public TransactionExecutor(TransactionExecutorProperties properties) {
+        this.properties = properties;
+        this.permits = new Semaphore(properties.getMaxConcurrentTransactions(), true);
+        ExecutorService virtualExecutor = properties.getMode() == TransactionExecutorProperties.Mode.VIRTUAL
+                ? newVirtualThreadPerTaskExecutor()
+                : null;
+        this.virtual = virtualExecutor != null;
+        this.executor = virtual ? virtualExecutor : newPlatformExecutor(properties.getPlatformThreads());
+        log.info("TransactionExecutor 시작. virtual={}, maxConcurrentTransactions={}", virtual, properties.getMaxConcurrentTransactions());
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            acquire();
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<Void> submit(Runnable task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(properties.getAcquireTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new CannotCreateTransactionException("동시 트랜잭션 수 제한 대기 시간 초과. acquireTimeout=" + properties.getAcquireTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotCreateTransactionException("동시 트랜잭션 수 제한 대기 중 인터럽트", e);
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("가상 쓰레드를 지원하지 않는 JVM 이므로 플랫폼 쓰레드로 실행. java.version={}", System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger sequence = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tx-executor-" + sequence.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+}
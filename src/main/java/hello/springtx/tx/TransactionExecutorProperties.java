@@ -0,0 +1,28 @@
+package hello.springtx.tx;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("springtx.tx.executor")
+public class TransactionExecutorProperties {
+
+    private Mode mode = Mode.PLATFORM;
+
+    // PLATFORM 모드의 쓰레드 수
+    private int platformThreads = 200;
+
+    // 동시에 실행되는 트랜잭션 수 (커넥션 풀 크기에 맞춤, Hikari 기본값 10)
+    private int maxConcurrentTransactions = 10;
+
+    // 세마포어를 기다리는 최대 시간
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+
+    public enum Mode {
+        PLATFORM, // 고정 크기 플랫폼 쓰레드 풀
+        VIRTUAL   // 작업마다 가상 쓰레드 (Java 21 이상, 아니면 PLATFORM 으로 동작)
+    }
+
+}
@@ -0,0 +1,135 @@
+package hello.springtx.tx;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+트랜잭션 이름(MemberService.joinV1, OrderService.order ...) 별 지표
+- tx.begin    : 새 트랜잭션 시작에 걸린 시간 (EntityManager 생성, 트랜잭션 시작)
+                springtx.datasource.lazy-connection.enabled=true 이면 커넥션은 첫 SQL 에서 획득하므로
+                커넥션 획득 대기는 여기가 아니라 tx.duration 과 datasource.guard.wait 에 잡힘
+- tx.duration : 새 트랜잭션 시작부터 커밋 / 롤백 완료까지 걸린 시간 (히스토그램)
+- tx.outcome  : commit / rollback / rollback_only (커밋을 요청했지만 rollbackOnly로 롤백) / failed
+                / marked_rollback_only (참여 중인 트랜잭션이 롤백되어 외부 트랜잭션에 rollbackOnly를 마킹)
+- tx.suspend, tx.resume : REQUIRES_NEW / NOT_SUPPORTED 로 기존 트랜잭션을 보류 / 재개한 횟수
+
+Meter는 이름별로 한 번만 만들어 캐시해두고, 트랜잭션마다 Meter 조회 / 태그 생성을 하지 않음.
+ */
+public class TransactionMetrics {
+
+    static final String UNNAMED = "unnamed";
+
+    static final String OTHER = "other";
+
+    // 동적으로 만들어지는 트랜잭션 이름 때문에 Meter가 무한히 늘어나지 않도록 제한
+    static final int MAX_NAMES = 1_000;
+
+    private final MeterRegistry registry;
+
+    private final ConcurrentMap<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public TransactionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Meters meters(@Nullable String transactionName) {
+        String key = transactionName != null ? transactionName : UNNAMED;
+        Meters found = meters.get(key);
+        if (found != null) {
+            return found;
+        }
+        if (meters.size() >= MAX_NAMES) {
+            return meters.computeIfAbsent(OTHER, name -> new Meters(registry, OTHER));
+        }
+        return meters.computeIfAbsent(key, name -> new Meters(registry, shortName(name)));
+    }
+
+    // hello.springtx.propagation.MemberService.joinV1 -> MemberService.joinV1
+    static String shortName(String transactionName) {
+        int methodDot = transactionName.lastIndexOf('.');
+        if (methodDot <= 0) {
+            return transactionName;
+        }
+        int classDot = transactionName.lastIndexOf('.', methodDot - 1);
+        return transactionName.substring(classDot + 1);
+    }
+
+    public static class Meters {
+
+        private final Timer begin;
+        private final Timer duration;
+        private final Counter commit;
+        private final Counter rollback;
+        private final Counter rollbackOnly;
+        private final Counter failed;
+        private final Counter markedRollbackOnly;
+        private final Counter suspend;
+        private final Counter resume;
+
+        Meters(MeterRegistry registry, String name) {
+            this.begin = Timer.builder("tx.begin").tag("name", name)
+                    .description("time to begin a new transaction; includes connection acquisition only when connections are not acquired lazily")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.duration = Timer.builder("tx.duration").tag("name", name)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.commit = outcome(registry, name, "commit");
+            this.rollback = outcome(registry, name, "rollback");
+            this.rollbackOnly = outcome(registry, name, "rollback_only");
+            this.failed = outcome(registry, name, "failed");
+            this.markedRollbackOnly = outcome(registry, name, "marked_rollback_only");
+            this.suspend = Counter.builder("tx.suspend").tag("name", name).register(registry);
+            this.resume = Counter.builder("tx.resume").tag("name", name).register(registry);
+        }
+
+        private static Counter outcome(MeterRegistry registry, String name, String outcome) {
+            return Counter.builder("tx.outcome").tag("name", name).tag("outcome", outcome).register(registry);
+        }
+
+        void begun(long nanos) {
+            begin.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        void completed(long nanos, Counter outcome) {
+            duration.record(nanos, TimeUnit.NANOSECONDS);
+            outcome.increment();
+        }
+
+        Counter commit() {
+            return commit;
+        }
+
+        Counter rollback() {
+            return rollback;
+        }
+
+        Counter rollbackOnly() {
+            return rollbackOnly;
+        }
+
+        Counter failed() {
+            return failed;
+        }
+
+        void markedRollbackOnly() {
+            markedRollbackOnly.increment();
+        }
+
+        void suspended() {
+            suspend.increment();
+        }
+
+        void resumed() {
+            resume.increment();
+        }
+
+    }
+
+}
@@ -0,0 +1,27 @@
+package hello.springtx.tx;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+트랜잭션 지표는 Micrometer로 기록되고, micrometer-registry-jmx 를 통해 JMX(metrics 도메인)로도 노출됨.
+TRACE / DEBUG 트랜잭션 로그 대신 운영 환경에서 켜둘 수 있는 수준의 비용으로 집계함.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "springtx.tx.metrics", name = "enabled", matchIfMissing = true)
+public class TransactionMetricsConfig {
+
+    @Bean
+    public TransactionMetrics transactionMetrics(MeterRegistry meterRegistry) {
+        return new TransactionMetrics(meterRegistry);
+    }
+
+    @Bean
+    public static TransactionMetricsPostProcessor transactionMetricsPostProcessor(ObjectProvider<TransactionMetrics> transactionMetrics) {
+        return new TransactionMetricsPostProcessor(transactionMetrics);
+    }
+
+}
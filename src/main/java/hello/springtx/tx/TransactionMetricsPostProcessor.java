@@ -0,0 +1,30 @@
+package hello.springtx.tx;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/*
+컨테이너에 등록되는 PlatformTransactionManager 빈을 InstrumentedTransactionManager로 감쌈.
+@Transactional, TransactionTemplate 모두 빈을 통해 트랜잭션 매니저를 사용하므로 코드 변경 없이 지표가 기록됨.
+ */
+public class TransactionMetricsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<TransactionMetrics> metrics;
+
+    public TransactionMetricsPostProcessor(ObjectProvider<TransactionMetrics> metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof PlatformTransactionManager && !(bean instanceof InstrumentedTransactionManager)) {
+            TransactionMetrics transactionMetrics = metrics.getIfAvailable();
+            if (transactionMetrics != null) {
+                return new InstrumentedTransactionManager((PlatformTransactionManager) bean, transactionMetrics);
+            }
+        }
+        return bean;
+    }
+
+}
@@ -0,0 +1,186 @@
+package hello.springtx.tx;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.LockTimeoutException;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PessimisticLockException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+트랜잭션 단위 전체를 일시적인 실패(데드락, 락 타임아웃, 직렬화 실패, 낙관적 락 충돌)에 한해 다시 실행함.
+- 트랜잭션은 unit 안에서 시작되어야 함 (@Transactional 메서드 호출 또는 TransactionTemplate)
+  이미 트랜잭션이 진행 중이면 바깥 트랜잭션이 rollbackOnly 가 되어 재시도가 의미 없으므로 한 번만 실행함
+- NotEnoughMoneyException 같은 비즈니스 예외는 일시적인 실패가 아니므로 그대로 던짐 (커밋 후 예외를 던지는 기존 동작 유지)
+- 커넥션 풀 대기 타임아웃(SQLTransientConnectionException)은 재시도하지 않음
+  풀이 고갈된 상태에서 재시도하면 같은 풀에 요청이 더 쌓여서 고갈이 길어지기만 하므로 바로 실패시킴
+- 재시도 전에는 지터가 들어간 지수 백오프만큼 대기해서 같은 자원을 두고 경합하는 요청들이 다시 동시에 부딪히지 않게 함
+ */
+@Slf4j
+@Component
+public class TransactionRetryExecutor {
+
+    // 직렬화 실패 (serialization_failure), 데드락 (PostgreSQL deadlock_detected)
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final String DEADLOCK_DETECTED = "40P01";
+
+    // H2 락 타임아웃 (LOCK_TIMEOUT_1), 데드락 (DEADLOCK_1)
+    private static final int H2_LOCK_TIMEOUT = 50200;
+    private static final int H2_DEADLOCK = 40001;
+
+    private final TransactionRetryProperties properties;
+
+    private final Object budgetLock = new Object();
+
+    private double budgetTokens;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    public TransactionRetryExecutor(TransactionRetryProperties properties) {
+        this.properties = properties;
+        this.budgetTokens = properties.getBudget().getMaxTokens();
+    }
+
+    public <T, E extends Exception> T execute(String name, Unit<T, E> unit) throws E {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            log.debug("이미 트랜잭션이 진행 중이므로 재시도 없이 실행. name={}", name);
+            return unit.run();
+        }
+
+        deposit();
+        int attempt = 1;
+        while (true) {
+            try {
+                return unit.run();
+            } catch (Exception e) {
+                if (!isTransient(e) || attempt >= properties.getMaxAttempts() || !withdraw()) {
+                    throw e;
+                }
+                long backoffMillis = backoffMillis(attempt);
+                log.info("일시적인 실패로 재시도. name={}, attempt={}, backoff={}ms, cause={}", name, attempt, backoffMillis, e.toString());
+                retries.incrementAndGet();
+                if (!sleep(backoffMillis)) {
+                    throw e;
+                }
+                attempt++;
+            }
+        }
+    }
+
+    public void executeWithoutResult(String name, VoidUnit unit) {
+        execute(name, () -> {
+            unit.run();
+            return null;
+        });
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    /**
+     * 같은 요청을 다시 실행하면 성공할 수 있는 일시적인 실패인지 원인 체인을 따라가며 확인한다.
+     */
+    public static boolean isTransient(Throwable e) {
+        if (isConnectionAcquisitionFailure(e)) {
+            return false;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException
+                    || cause instanceof TransientDataAccessException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof PessimisticLockException
+                    || cause instanceof LockTimeoutException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                String sqlState = sqlException.getSQLState();
+                int errorCode = sqlException.getErrorCode();
+                if (SERIALIZATION_FAILURE.equals(sqlState) || DEADLOCK_DETECTED.equals(sqlState)
+                        || errorCode == H2_LOCK_TIMEOUT || errorCode == H2_DEADLOCK) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 커넥션 풀에서 커넥션을 얻지 못해서 실패했는지 확인한다. (SQL 은 실행되지 않았음)
+     * 스프링이 SQLTransientConnectionException 을 TransientDataAccessResourceException 으로 변환하기도 하므로 체인 전체를 확인한다.
+     */
+    public static boolean isConnectionAcquisitionFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException || cause instanceof CannotGetJdbcConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // full jitter: 0 ~ min(maxBackoff, initialBackoff * multiplier^(attempt-1))
+    long backoffMillis(int attempt) {
+        double cap = properties.getInitialBackoff().toMillis() * Math.pow(properties.getMultiplier(), attempt - 1);
+        long bound = (long) Math.min(properties.getMaxBackoff().toMillis(), cap);
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private void deposit() {
+        synchronized (budgetLock) {
+            budgetTokens = Math.min(properties.getBudget().getMaxTokens(), budgetTokens + properties.getBudget().getRatio());
+        }
+    }
+
+    private boolean withdraw() {
+        synchronized (budgetLock) {
+            if (budgetTokens >= 1) {
+                budgetTokens -= 1;
+                return true;
+            }
+        }
+        budgetExhausted.incrementAndGet();
+        log.warn("재시도 예산이 소진되어 재시도하지 않음");
+        return false;
+    }
+
+    // 대기 중 인터럽트되면 재시도하지 않고 마지막 예외를 그대로 던지도록 false 반환
+    private static boolean sleep(long millis) {
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Unit<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    @FunctionalInterface
+    public interface VoidUnit {
+        void run();
+    }
+
+}
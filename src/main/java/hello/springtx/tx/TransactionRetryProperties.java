@@ -0,0 +1,39 @@
+package hello.springtx.tx;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("springtx.tx.retry")
+public class TransactionRetryProperties {
+
+    // 첫 시도를 포함한 최대 시도 횟수
+    private int maxAttempts = 3;
+
+    // 첫 재시도 전 대기 시간의 상한 (full jitter, 0 ~ 상한 사이에서 무작위로 대기)
+    private Duration initialBackoff = Duration.ofMillis(20);
+
+    // 재시도마다 상한을 multiplier 배씩 늘리되 maxBackoff 를 넘지 않음
+    private double multiplier = 2.0;
+
+    private Duration maxBackoff = Duration.ofMillis(500);
+
+    private Budget budget = new Budget();
+
+    /*
+    재시도 예산 (토큰 버킷)
+    첫 시도마다 ratio 만큼 토큰이 쌓이고 재시도마다 1개를 사용함.
+    장애 상황에서 모든 요청이 maxAttempts 배로 부하를 키우지 않도록, 재시도는 전체 시도의 ratio 비율 정도로 제한됨.
+     */
+    @Data
+    public static class Budget {
+
+        private double ratio = 0.2;
+
+        private int maxTokens = 20;
+
+    }
+
+}
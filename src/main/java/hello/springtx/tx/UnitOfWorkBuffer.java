@@ -0,0 +1,19 @@
+package hello.springtx.tx;
+
+/**
+ * 현재 트랜잭션에 묶여서 쓰기를 모아두는 버퍼. {@link TransactionBuffers}로 트랜잭션에 바인딩되며,
+ * 커밋 직전(beforeCommit)에 flush 되고 롤백되면 discard 된다.
+ */
+public interface UnitOfWorkBuffer {
+
+    /**
+     * 모아둔 쓰기를 현재 트랜잭션 안에서 실행하고 버퍼를 비운다.
+     */
+    void flush();
+
+    /**
+     * 모아둔 쓰기를 실행하지 않고 버린다.
+     */
+    void discard();
+
+}
@@ -0,0 +1,74 @@
+package hello.springtx;
+
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderRepository;
+import hello.springtx.propagation.Member;
+import hello.springtx.propagation.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+batchSize 별 대량 저장 처리량(rows/sec) 측정. ./gradlew benchmark 로 실행.
+SQL 로그가 켜져 있으면 측정값이 크게 왜곡되므로 로그 레벨을 낮춰서 실행함.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.springframework.transaction.interceptor=info",
+        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=info",
+        "logging.level.org.hibernate.resource.transaction=info"
+})
+class BulkInsertBenchmarkTest {
+
+    static final int ROWS = 100_000;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50, 100, 500, 1000})
+    void memberRowsPerSecond(int batchSize) {
+        List<Member> members = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            members.add(new Member("bench_" + batchSize + "_" + i));
+        }
+
+        long start = System.nanoTime();
+        memberRepository.saveAll(members, batchSize);
+        long elapsed = System.nanoTime() - start;
+
+        log.info("member batchSize={} rows={} elapsedMs={} rows/sec={}",
+                batchSize, ROWS, elapsed / 1_000_000, (long) (ROWS / (elapsed / 1e9)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50, 100, 500, 1000})
+    void orderRowsPerSecond(int batchSize) {
+        List<Order> orders = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Order order = new Order();
+            order.setUsername("bench_" + batchSize);
+            order.setPayStatus("완료");
+            orders.add(order);
+        }
+
+        long start = System.nanoTime();
+        orderRepository.saveAllInBatch(orders, batchSize);
+        long elapsed = System.nanoTime() - start;
+
+        log.info("order batchSize={} rows={} elapsedMs={} rows/sec={}",
+                batchSize, ROWS, elapsed / 1_000_000, (long) (ROWS / (elapsed / 1e9)));
+    }
+
+}
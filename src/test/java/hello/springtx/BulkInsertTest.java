@@ -0,0 +1,61 @@
+package hello.springtx;
+
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderRepository;
+import hello.springtx.propagation.Member;
+import hello.springtx.propagation.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class BulkInsertTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    void memberSaveAll() {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            members.add(new Member("bulkMember_" + i));
+        }
+
+        memberRepository.saveAll(members, 50);
+
+        Long count = em.createQuery("select count(m) from Member m where m.username like 'bulkMember_%'", Long.class)
+                .getSingleResult();
+        assertThat(count).isEqualTo(120);
+        assertThat(members).allSatisfy(member -> assertThat(member.getId()).isNotNull());
+    }
+
+    @Test
+    void orderSaveAllInBatch() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Order order = new Order();
+            order.setUsername("bulkOrder");
+            order.setPayStatus("대기");
+            orders.add(order);
+        }
+
+        orderRepository.saveAllInBatch(orders, 50);
+
+        Long count = em.createQuery("select count(o) from Order o where o.username = 'bulkOrder'", Long.class)
+                .getSingleResult();
+        assertThat(count).isEqualTo(120);
+    }
+
+}
@@ -0,0 +1,186 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest(properties = {
+        "springtx.datasource.guard.enabled=true",
+        "springtx.datasource.guard.leak-detection-threshold=200ms"
+})
+class ConnectionGuardDataSourceTest {
+
+    static final int POOL_SIZE = 4;
+
+    static final long CONNECTION_TIMEOUT_MILLIS = 1_000;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void hikariDataSourceIsGuarded() throws Exception {
+        assertThat(guard()).isNotNull();
+        assertThat(dataSource.unwrap(HikariDataSource.class)).isNotNull();
+    }
+
+    @DisplayName("누수 의심 커넥션은 커넥션을 사용한 트랜잭션 이름과 함께 보고됨")
+    @Test
+    void leakReportHasTransactionName() {
+        ConnectionGuardDataSource guard = guard();
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setName("leakReportHasTransactionName");
+
+        List<ConnectionGuardDataSource.LeakReport> leaks = txTemplate.execute(status -> {
+            jdbcTemplate.queryForObject("select 1", Integer.class);
+            sleep(300);
+            return guard.leaks();
+        });
+
+        log.info("leaks={}", leaks);
+        assertThat(leaks).extracting(ConnectionGuardDataSource.LeakReport::getTransactionName)
+                .contains("leakReportHasTransactionName");
+        assertThat(guard.leaks()).isEmpty();
+    }
+
+    @DisplayName("풀 크기만큼 동시에 REQUIRES_NEW 를 호출하면 모두 커넥션을 기다리다 실패 (guard 는 경고만 함)")
+    @Test
+    void requiresNewStarvesPool_warn() throws InterruptedException {
+        Result result = requiresNewUnderLoad(ConnectionGuardProperties.Mode.WARN);
+
+        assertThat(result.failures).isEqualTo(POOL_SIZE);
+        assertThat(result.elapsedMillis).isGreaterThanOrEqualTo(CONNECTION_TIMEOUT_MILLIS);
+    }
+
+    @DisplayName("FAIL_FAST 는 connectionTimeout 을 기다리지 않고 바로 실패")
+    @Test
+    void requiresNewStarvesPool_failFast() throws InterruptedException {
+        Result result = requiresNewUnderLoad(ConnectionGuardProperties.Mode.FAIL_FAST);
+
+        assertThat(result.failures).isEqualTo(POOL_SIZE);
+        assertThat(result.elapsedMillis).isLessThan(CONNECTION_TIMEOUT_MILLIS);
+    }
+
+    @DisplayName("RESERVE 는 중첩 요청용 커넥션을 남겨두므로 풀이 고갈되지 않음")
+    @Test
+    void requiresNewWithReserve() throws InterruptedException {
+        Result result = requiresNewUnderLoad(ConnectionGuardProperties.Mode.RESERVE);
+
+        assertThat(result.failures).isZero();
+    }
+
+    private Result requiresNewUnderLoad(ConnectionGuardProperties.Mode mode) throws InterruptedException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:starvation_" + mode + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setMaximumPoolSize(POOL_SIZE);
+        config.setConnectionTimeout(CONNECTION_TIMEOUT_MILLIS);
+
+        ConnectionGuardProperties properties = new ConnectionGuardProperties();
+        properties.setMode(mode);
+        properties.setReserve(1);
+        properties.setLeakDetectionThreshold(Duration.ZERO);
+
+        ConnectionGuardDataSource guard = new ConnectionGuardDataSource("starvation", new HikariDataSource(config), properties, null);
+        try {
+            DataSourceTransactionManager txManager = new DataSourceTransactionManager(guard);
+            TransactionTemplate outer = new TransactionTemplate(txManager);
+            TransactionTemplate inner = new TransactionTemplate(txManager);
+            inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+            CountDownLatch outersStarted = new CountDownLatch(POOL_SIZE);
+            AtomicInteger failures = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < POOL_SIZE; i++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        outer.executeWithoutResult(status -> {
+                            // 모든 요청이 바깥 트랜잭션 커넥션을 잡은 뒤에 REQUIRES_NEW 를 호출하도록 맞춤
+                            outersStarted.countDown();
+                            awaitQuietly(outersStarted);
+                            inner.executeWithoutResult(innerStatus -> {
+                            });
+                        });
+                    } catch (CannotCreateTransactionException e) {
+                        log.info("커넥션 획득 실패. {}", e.getMessage());
+                        failures.incrementAndGet();
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("mode={} failures={} elapsedMs={}", mode, failures.get(), elapsedMillis);
+            return new Result(failures.get(), elapsedMillis);
+        } finally {
+            guard.destroy();
+        }
+    }
+
+    private ConnectionGuardDataSource guard() {
+        DataSource target = dataSource instanceof LazyConnectionDataSourceProxy
+                ? ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource()
+                : dataSource;
+        assertThat(target).isInstanceOf(ConnectionGuardDataSource.class);
+        return (ConnectionGuardDataSource) target;
+    }
+
+    // RESERVE 모드에서는 바깥 트랜잭션이 (풀 크기 - reserve) 개만 시작하므로 일정 시간만 기다림
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(300, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class Result {
+        final int failures;
+        final long elapsedMillis;
+
+        Result(int failures, long elapsedMillis) {
+            this.failures = failures;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package hello.springtx.datasource;
+
+import hello.springtx.propagation.MemberRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+커넥션 획득 횟수는 지연 프록시 바로 아래에서 테스트 쓰레드가 가져간 것만 셈.
+같은 컨텍스트의 다른 쓰레드(로그 버킷 관리, audit log 워커, 묶음 트랜잭션 워커 등)가 가져가는 커넥션은 세지 않음.
+ */
+@SpringBootTest(properties = "springtx.datasource.lazy-connection.enabled=true")
+class LazyConnectionTest {
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    LazyConnectionDataSourceProxy lazy;
+
+    DataSource target;
+
+    ThreadBorrowCounter counter;
+
+    @BeforeEach
+    void countBorrows() {
+        assertThat(dataSource).isInstanceOf(LazyConnectionDataSourceProxy.class);
+        lazy = (LazyConnectionDataSourceProxy) dataSource;
+        target = lazy.getTargetDataSource();
+        counter = new ThreadBorrowCounter(target, Thread.currentThread());
+        lazy.setTargetDataSource(counter);
+    }
+
+    @AfterEach
+    void restore() {
+        lazy.setTargetDataSource(target);
+    }
+
+    @DisplayName("SQL 없이 끝나는 트랜잭션은 풀에서 커넥션을 가져가지 않음")
+    @Test
+    void untouchedTransaction() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+
+        txTemplate.executeWithoutResult(status -> {
+        });
+        txTemplate.executeWithoutResult(status -> status.setRollbackOnly());
+
+        assertThat(counter.borrows.get()).isZero();
+    }
+
+    @DisplayName("첫 SQL 실행 시점에 커넥션을 한 번만 가져옴")
+    @Test
+    void acquireOnFirstStatement() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+
+        txTemplate.executeWithoutResult(status -> {
+            assertThat(counter.borrows.get()).isZero();
+            memberRepository.findByUsername("lazy_1");
+            memberRepository.findByUsername("lazy_2");
+        });
+
+        assertThat(counter.borrows.get()).isEqualTo(1);
+    }
+
+    // owner 쓰레드가 가져간 커넥션 수만 셈
+    static class ThreadBorrowCounter extends DelegatingDataSource {
+
+        final AtomicLong borrows = new AtomicLong();
+
+        private final Thread owner;
+
+        ThreadBorrowCounter(DataSource target, Thread owner) {
+            super(target);
+            this.owner = owner;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            count();
+            return super.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            count();
+            return super.getConnection(username, password);
+        }
+
+        private void count() {
+            if (Thread.currentThread() == owner) {
+                borrows.incrementAndGet();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package hello.springtx.datasource;
+
+import hello.springtx.propagation.LogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+로컬 H2 인스턴스 3개(primary 1, replica 2)로 라우팅 확인
+(실제 복제는 없으므로 replica에는 테이블이 없고, 연결된 DB URL만 확인함)
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "springtx.datasource.routing.enabled=true",
+        "springtx.datasource.routing.primary.url=jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1",
+        "springtx.datasource.routing.replicas[0].url=jdbc:h2:mem:routing_replica0;DB_CLOSE_DELAY=-1",
+        "springtx.datasource.routing.replicas[1].url=jdbc:h2:mem:routing_replica1;DB_CLOSE_DELAY=-1"
+})
+class RoutingDataSourceTest {
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    LogRepository logRepository;
+
+    @Test
+    void writeTransactionUsesPrimary() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+
+        String url = txTemplate.execute(status -> currentUrl());
+
+        log.info("url={}", url);
+        assertThat(url).contains("routing_primary");
+    }
+
+    @Test
+    void readOnlyTransactionUsesReplicasRoundRobin() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setReadOnly(true);
+
+        Set<String> urls = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            String url = txTemplate.execute(status -> currentUrl());
+            log.info("url={}", url);
+            assertThat(url).doesNotContain("routing_primary");
+            urls.add(url);
+        }
+
+        assertThat(urls).hasSize(2);
+    }
+
+    @Test
+    void logReadsUsePrimaryEvenInReadOnlyTransaction() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setReadOnly(true);
+
+        // 로그 날짜 테이블은 primary 에만 있음 -> replica 로 가면 테이블이 없어서 실패함
+        String url = txTemplate.execute(status -> {
+            assertThat(logRepository.findByMessage("routing_log")).isEmpty();
+            return currentUrl();
+        });
+
+        log.info("url={}", url);
+        assertThat(url).contains("routing_primary");
+
+        // 표시는 그 트랜잭션에만 적용됨
+        String next = txTemplate.execute(status -> currentUrl());
+        assertThat(next).doesNotContain("routing_primary");
+    }
+
+    private String currentUrl() {
+        return em.unwrap(Session.class).doReturningWork(connection -> connection.getMetaData().getURL());
+    }
+
+}
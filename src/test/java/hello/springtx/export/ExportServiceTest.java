@@ -0,0 +1,97 @@
+package hello.springtx.export;
+
+import hello.springtx.propagation.Member;
+import hello.springtx.propagation.MemberRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class ExportServiceTest {
+
+    static final int MEMBERS = 1_000;
+
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    void exportMembersCsv() throws IOException {
+        saveMembers("export_csv_");
+        memberRepository.save(new Member("export,\"quoted\""));
+
+        StringWriter writer = new StringWriter();
+        long rows = exportService.exportMembers(ExportFormat.CSV, writer);
+
+        String[] lines = writer.toString().split("\r\n");
+        assertThat(lines[0]).isEqualTo("id,username");
+        assertThat(lines).hasSize((int) rows + 1);
+        assertThat(rows).isGreaterThanOrEqualTo(MEMBERS + 1);
+        assertThat(writer.toString()).contains(",\"export,\"\"quoted\"\"\"\r\n");
+    }
+
+    @Test
+    void exportMembersNdjson() throws IOException {
+        saveMembers("export_ndjson_");
+
+        StringWriter writer = new StringWriter();
+        long rows = exportService.exportMembers(ExportFormat.NDJSON, writer);
+
+        String[] lines = writer.toString().split("\n");
+        assertThat(lines).hasSize((int) rows);
+        assertThat(lines).anyMatch(line -> line.matches("\\{\"id\":\\d+,\"username\":\"export_ndjson_0\"}"));
+    }
+
+    @DisplayName("스트림으로 읽은 엔티티는 바로 영속성 컨텍스트에서 분리됨")
+    @Test
+    void streamedRowsAreDetached() {
+        saveMembers("export_detached_");
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setReadOnly(true);
+
+        long count = txTemplate.execute(status -> {
+            try (Stream<Member> members = memberRepository.streamAll()) {
+                return members.peek(member -> assertThat(em.contains(member)).isFalse()).count();
+            }
+        });
+
+        assertThat(count).isGreaterThanOrEqualTo(MEMBERS);
+    }
+
+    @DisplayName("트랜잭션 밖에서는 스트림을 열 수 없음 (커서가 트랜잭션의 커넥션을 사용)")
+    @Test
+    void streamRequiresTransaction() {
+        assertThatThrownBy(() -> memberRepository.streamAll())
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    private void saveMembers(String prefix) {
+        List<Member> members = new ArrayList<>(MEMBERS);
+        for (int i = 0; i < MEMBERS; i++) {
+            members.add(new Member(prefix + i));
+        }
+        memberRepository.saveAll(members);
+    }
+
+}
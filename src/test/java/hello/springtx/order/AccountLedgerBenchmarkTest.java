@@ -0,0 +1,96 @@
+package hello.springtx.order;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+계좌 수에 따른 주문 처리량(orders/sec). ./gradlew benchmark 로 실행.
+잔고 차감은 계좌 행 하나에만 락을 잡으므로 계좌가 많을수록 주문끼리 기다리는 일이 줄어듦.
+계좌 수와 관계없이 잔고는 음수가 되지 않고, 차감된 금액 = 완료된 주문 금액의 합이어야 함.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.springframework.transaction.interceptor=info",
+        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=info",
+        "logging.level.org.hibernate.resource.transaction=info"
+})
+class AccountLedgerBenchmarkTest {
+
+    static final int THREADS = 32;
+    static final int ORDERS = 4_000;
+    static final long AMOUNT = 100;
+    static final long INITIAL_BALANCE = 50_000;
+
+    @Autowired
+    OrderFacade orderFacade;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Test
+    void ordersPerSecondByAccounts() throws InterruptedException {
+        Map<Integer, Long> results = new LinkedHashMap<>();
+        for (int accounts : new int[]{1, 4, 16, 64}) {
+            results.put(accounts, (long) ordersPerSecond(accounts));
+        }
+        log.info("accounts -> orders/sec {}", results);
+    }
+
+    private double ordersPerSecond(int accounts) throws InterruptedException {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            String username = "ledger_" + accounts + "_" + i;
+            accountRepository.save(new Account(username, INITIAL_BALANCE));
+            usernames.add(username);
+        }
+
+        AtomicLong completed = new AtomicLong();
+        AtomicLong pending = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            executor.execute(() -> {
+                String username = usernames.get(ThreadLocalRandom.current().nextInt(accounts));
+                try {
+                    orderFacade.order(AccountLedgerTest.order(username, AMOUNT));
+                    completed.incrementAndGet();
+                } catch (NotEnoughMoneyException e) {
+                    pending.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+
+        long remaining = 0;
+        for (String username : usernames) {
+            long balance = accountRepository.findById(username).get().getBalance();
+            assertThat(balance).isGreaterThanOrEqualTo(0);
+            remaining += balance;
+        }
+        assertThat(INITIAL_BALANCE * accounts - remaining).isEqualTo(completed.get() * AMOUNT);
+
+        double ordersPerSecond = ORDERS / (elapsed / 1e9);
+        log.info("accounts={} completed={} pending={} orders/sec={}", accounts, completed.get(), pending.get(), (long) ordersPerSecond);
+        return ordersPerSecond;
+    }
+
+}
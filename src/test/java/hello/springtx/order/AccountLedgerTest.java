@@ -0,0 +1,92 @@
+package hello.springtx.order;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class AccountLedgerTest {
+
+    static final int THREADS = 32;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderFacade orderFacade;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @DisplayName("잔고가 충분하면 차감하고 완료, 부족하면 차감 없이 대기 주문으로 커밋")
+    @Test
+    void withdrawOrPending() throws NotEnoughMoneyException {
+        accountRepository.save(new Account("ledger_user", 1_000));
+
+        Order paid = order("ledger_user", 700);
+        orderService.order(paid);
+
+        Order unpaid = order("ledger_user", 700);
+        assertThatThrownBy(() -> orderService.order(unpaid)).isInstanceOf(NotEnoughMoneyException.class);
+
+        assertThat(orderRepository.findById(paid.getId()).get().getPayStatus()).isEqualTo("완료");
+        assertThat(orderRepository.findById(unpaid.getId()).get().getPayStatus()).isEqualTo("대기");
+        assertThat(balance("ledger_user")).isEqualTo(300);
+    }
+
+    @DisplayName("같은 계좌에 동시에 주문해도 잔고만큼만 완료되고 잔고가 음수가 되지 않음")
+    @Test
+    void neverNegativeUnderConcurrency() throws InterruptedException {
+        int affordable = 10;
+        accountRepository.save(new Account("ledger_hot", affordable * 100L));
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger pending = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            executor.execute(() -> {
+                ready.countDown();
+                try {
+                    ready.await();
+                    orderFacade.order(order("ledger_hot", 100));
+                    completed.incrementAndGet();
+                } catch (NotEnoughMoneyException e) {
+                    pending.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(completed.get()).isEqualTo(affordable);
+        assertThat(pending.get()).isEqualTo(THREADS - affordable);
+        assertThat(balance("ledger_hot")).isZero();
+    }
+
+    static Order order(String username, long amount) {
+        Order order = new Order();
+        order.setUsername(username);
+        order.setAmount(amount);
+        return order;
+    }
+
+    private long balance(String username) {
+        return accountRepository.findById(username).get().getBalance();
+    }
+
+}
@@ -0,0 +1,162 @@
+package hello.springtx.order;
+
+import hello.springtx.tx.TransactionRetryExecutor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class IdempotentOrderServiceTest {
+
+    @Autowired
+    IdempotentOrderService idempotentOrderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @DisplayName("같은 키로 다시 요청하면 주문하지 않고 처음 결과를 캐시에서 돌려줌")
+    @Test
+    void replayCompleted() {
+        OrderReceipt first = idempotentOrderService.order("key-completed", order("idempotent_completed"));
+        long hits = idempotentOrderService.stats().hitCount();
+
+        OrderReceipt second = idempotentOrderService.order("key-completed", order("idempotent_completed"));
+
+        assertThat(first.getOutcome()).isEqualTo(OrderOutcome.COMPLETED);
+        assertThat(second).isEqualTo(first);
+        assertThat(idempotentOrderService.stats().hitCount()).isEqualTo(hits + 1);
+        assertThat(countOrders("idempotent_completed")).isEqualTo(1);
+    }
+
+    @DisplayName("잔고 부족이면 대기 주문이 커밋되고 같은 키로 다시 요청해도 대기 결과를 돌려줌")
+    @Test
+    void replayPending() {
+        OrderReceipt first = idempotentOrderService.order("key-pending", unpaid("잔고부족"));
+        OrderReceipt second = idempotentOrderService.order("key-pending", unpaid("잔고부족"));
+
+        assertThat(first.getOutcome()).isEqualTo(OrderOutcome.PENDING);
+        assertThat(second).isEqualTo(first);
+        assertThat(orderRepository.findById(first.getOrderId()).get().getPayStatus()).isEqualTo("대기");
+    }
+
+    @DisplayName("시스템 예외는 처음 요청에만 던지고 주문은 롤백됨, 같은 키로 다시 요청하면 실패 결과를 돌려줌")
+    @Test
+    void replayFailed() {
+        Order order = order("예외");
+
+        assertThatThrownBy(() -> idempotentOrderService.order("key-failed", order))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("시스템 예외");
+        OrderReceipt retry = idempotentOrderService.order("key-failed", order("예외"));
+
+        assertThat(retry.getOutcome()).isEqualTo(OrderOutcome.FAILED);
+        assertThat(retry.getOrderId()).isNull();
+        assertThat(orderRepository.findById(order.getId())).isEmpty();
+    }
+
+    @DisplayName("락 타임아웃 같은 일시적인 실패는 실패 결과를 남기지 않아서 같은 키로 재시도하면 주문이 처리됨")
+    @Test
+    void transientFailureIsNotRecorded() throws Exception {
+        Order order = order("idempotent_transient");
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 다른 트랜잭션이 계좌 행 락을 잡고 있어서 잔고 차감이 락 타임아웃으로 실패함
+            Future<?> holder = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jdbcTemplate.update("update account set balance = balance where username = ?", "idempotent_transient");
+                locked.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> idempotentOrderService.order("key-transient", order))
+                    .matches(TransactionRetryExecutor::isTransient);
+            assertThat(countKeys("key-transient")).isZero();
+
+            release.countDown();
+            holder.get();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        OrderReceipt retry = idempotentOrderService.order("key-transient", AccountLedgerTest.order("idempotent_transient", 1_000L));
+
+        assertThat(retry.getOutcome()).isEqualTo(OrderOutcome.COMPLETED);
+        assertThat(countOrders("idempotent_transient")).isEqualTo(1);
+    }
+
+    @DisplayName("같은 키로 동시에 요청해도 주문은 하나만 커밋되고 모두 같은 결과를 받음")
+    @Test
+    void concurrentSameKey() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        List<Future<OrderReceipt>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    return idempotentOrderService.order("key-concurrent", order("idempotent_concurrent"));
+                }));
+            }
+            OrderReceipt first = futures.get(0).get();
+            for (Future<OrderReceipt> future : futures) {
+                assertThat(future.get()).isEqualTo(first);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(countOrders("idempotent_concurrent")).isEqualTo(1);
+    }
+
+    private int countKeys(String idempotencyKey) {
+        return jdbcTemplate.queryForObject("select count(*) from order_idempotency_key where idempotency_key = ?", Integer.class, idempotencyKey);
+    }
+
+    private int countOrders(String username) {
+        return jdbcTemplate.queryForObject("select count(*) from orders where username = ?", Integer.class, username);
+    }
+
+    // 잔고가 충분한 계좌로 결제하는 주문
+    private Order order(String username) {
+        accountRepository.save(new Account(username, 10_000L));
+        return AccountLedgerTest.order(username, 1_000L);
+    }
+
+    // 계좌가 없으므로 잔고 0
+    private static Order unpaid(String username) {
+        return AccountLedgerTest.order(username, 10_000L);
+    }
+
+}
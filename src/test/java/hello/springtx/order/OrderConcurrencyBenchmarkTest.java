@@ -0,0 +1,114 @@
+package hello.springtx.order;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+같은 주문 몇 개(HOT_ORDERS)에 요청이 몰리는 상황에서 결제 완료 처리량(ops/sec) 비교. ./gradlew benchmark 로 실행.
+- 조건부 UPDATE (version 비교) : 문장 하나로 끝나고 락은 UPDATE 동안만 잡힘
+- 행 락 (select ... for update) : 조회 ~ 커밋까지 락을 잡고 있어서 같은 주문에 대한 트랜잭션이 줄을 섬
+어느 쪽이든 주문마다 성공은 정확히 한 번이어야 함 (lost update 없음)
+처리량은 로그로만 남기고 어느 쪽이 빠른지는 검증하지 않음 (공유 CI 환경에서는 실행마다 달라짐)
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.springframework.transaction.interceptor=info",
+        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=info",
+        "logging.level.org.hibernate.resource.transaction=info"
+})
+class OrderConcurrencyBenchmarkTest {
+
+    static final int THREADS = 32;
+    static final int HOT_ORDERS = 8;
+    static final int ROUNDS = 200;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Test
+    void optimisticVersusPessimistic() throws InterruptedException {
+        double optimistic = opsPerSecond("optimistic", order -> orderService.completePayment(order.getId(), order.getVersion()));
+        double pessimistic = opsPerSecond("pessimistic", order -> orderService.completePaymentWithLock(order.getId()));
+
+        // 처리량은 실행 환경에 따라 달라지므로 기록만 하고, 검증은 라운드마다 정합성(한 번만 완료 / 한 번만 차감)만 함
+        log.info("optimistic ops/sec={} pessimistic ops/sec={}", (long) optimistic, (long) pessimistic);
+    }
+
+    private double opsPerSecond(String label, Function<Order, Boolean> complete) throws InterruptedException {
+        AtomicLong operations = new AtomicLong();
+        AtomicLong succeeded = new AtomicLong();
+        long elapsed = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            String username = label + "_" + round;
+            long funded = HOT_ORDERS * OrderConcurrencyTest.PENDING_AMOUNT;
+            accountRepository.save(new Account(username, funded));
+            List<Order> orders = new ArrayList<>();
+            for (int i = 0; i < HOT_ORDERS; i++) {
+                orders.add(orderRepository.save(OrderConcurrencyTest.pending(username)));
+            }
+
+            AtomicLong roundSucceeded = new AtomicLong();
+            Set<Long> requested = ConcurrentHashMap.newKeySet();
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            long start = System.nanoTime();
+            for (int i = 0; i < THREADS; i++) {
+                executor.execute(() -> {
+                    Order order = orders.get(ThreadLocalRandom.current().nextInt(HOT_ORDERS));
+                    requested.add(order.getId());
+                    if (complete.apply(order)) {
+                        succeeded.incrementAndGet();
+                        roundSucceeded.incrementAndGet();
+                    }
+                    operations.incrementAndGet();
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            elapsed += System.nanoTime() - start;
+
+            long completed = 0;
+            for (Order order : orders) {
+                Order found = orderRepository.findById(order.getId()).get();
+                assertThat(found.getVersion()).isLessThanOrEqualTo(order.getVersion() + 1);
+                // 요청을 받은 주문은 모두 완료됨 (잔고는 모든 주문을 결제할 만큼 있음)
+                assertThat(found.getPayStatus()).isEqualTo(requested.contains(order.getId()) ? "완료" : "대기");
+                if (found.getPayStatus().equals("완료")) {
+                    completed++;
+                }
+            }
+            // 성공한 요청 수와 완료된 주문 수가 같음 (같은 주문이 두 번 완료되지 않음), 완료된 주문마다 정확히 한 번 차감됨
+            assertThat(roundSucceeded.get()).isEqualTo(completed);
+            assertThat(accountRepository.findById(username).get().getBalance())
+                    .isEqualTo(funded - completed * OrderConcurrencyTest.PENDING_AMOUNT);
+        }
+
+        log.info("{} operations={} succeeded={} elapsedMs={}", label, operations.get(), succeeded.get(), elapsed / 1_000_000);
+        return operations.get() / (elapsed / 1e9);
+    }
+
+}
@@ -0,0 +1,157 @@
+package hello.springtx.order;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest
+class OrderConcurrencyTest {
+
+    static final int THREADS = 16;
+
+    static final long PENDING_AMOUNT = 1_000L;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @DisplayName("먼저 커밋된 변경을 나중 트랜잭션이 덮어쓰지 못함")
+    @Test
+    void lostUpdateIsRejected() {
+        Order saved = orderRepository.save(pending("lostUpdate"));
+
+        Order first = orderRepository.findById(saved.getId()).get();
+        Order second = orderRepository.findById(saved.getId()).get();
+
+        first.setPayStatus("완료");
+        orderRepository.save(first);
+
+        second.setPayStatus("취소");
+        assertThatThrownBy(() -> orderRepository.save(second))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        Order found = orderRepository.findById(saved.getId()).get();
+        assertThat(found.getPayStatus()).isEqualTo("완료");
+        assertThat(found.getVersion()).isEqualTo(1L);
+    }
+
+    @DisplayName("대기 주문을 결제해서 완료 처리하고 잔고가 부족한 주문은 대기로 남김")
+    @Test
+    void completePendingOrders() {
+        String username = "bulkTransition";
+        accountRepository.save(new Account(username, 2_500L));
+        orderRepository.save(pending(username));
+        orderRepository.save(pending(username));
+        Order unpaid = orderRepository.save(pending(username));
+        Order done = pending(username);
+        done.setPayStatus("완료");
+        orderRepository.save(done);
+
+        assertThat(orderService.completePendingOrders(username)).isEqualTo(2);
+        assertThat(balance(username)).isEqualTo(500L);
+        assertThat(orderService.completePendingOrders(username)).isZero();
+        assertThat(balance(username)).isEqualTo(500L);
+        assertThat(orderRepository.findByUsernameAndPayStatus(username, "대기")).hasSize(1);
+        assertThat(orderRepository.findById(done.getId()).get().getVersion()).isZero();
+    }
+
+    @DisplayName("같은 주문을 동시에 완료 처리해도 version 비교로 한 번만 성공하고 한 번만 차감됨")
+    @Test
+    void compareAndSetOnlyOnce() throws Exception {
+        accountRepository.save(new Account("compareAndSet", 10_000L));
+        Order order = orderRepository.save(pending("compareAndSet"));
+
+        long succeeded = runConcurrently(() -> orderService.completePayment(order.getId(), order.getVersion()));
+
+        assertThat(succeeded).isEqualTo(1);
+        Order found = orderRepository.findById(order.getId()).get();
+        assertThat(found.getPayStatus()).isEqualTo("완료");
+        assertThat(found.getVersion()).isEqualTo(order.getVersion() + 1);
+        assertThat(balance("compareAndSet")).isEqualTo(9_000L);
+    }
+
+    @DisplayName("잔고가 부족하면 version 비교에 성공해도 상태 변경이 롤백되어 대기로 남음")
+    @Test
+    void compareAndSetWithoutBalance() {
+        accountRepository.save(new Account("compareAndSetUnpaid", 500L));
+        Order order = orderRepository.save(pending("compareAndSetUnpaid"));
+
+        assertThat(orderService.completePayment(order.getId(), order.getVersion())).isFalse();
+
+        Order found = orderRepository.findById(order.getId()).get();
+        assertThat(found.getPayStatus()).isEqualTo("대기");
+        assertThat(found.getVersion()).isEqualTo(order.getVersion());
+        assertThat(balance("compareAndSetUnpaid")).isEqualTo(500L);
+    }
+
+    @DisplayName("행 락으로 처리해도 한 번만 성공하고 한 번만 차감됨 (대신 락을 기다리는 동안 트랜잭션이 직렬화됨)")
+    @Test
+    void pessimisticLockOnlyOnce() throws Exception {
+        accountRepository.save(new Account("pessimisticLock", 10_000L));
+        Order order = orderRepository.save(pending("pessimisticLock"));
+
+        long succeeded = runConcurrently(() -> orderService.completePaymentWithLock(order.getId()));
+
+        assertThat(succeeded).isEqualTo(1);
+        assertThat(orderRepository.findById(order.getId()).get().getPayStatus()).isEqualTo("완료");
+        assertThat(balance("pessimisticLock")).isEqualTo(9_000L);
+    }
+
+    private long runConcurrently(Callable<Boolean> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            long succeeded = 0;
+            for (Future<Boolean> future : futures) {
+                if (future.get()) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long balance(String username) {
+        return accountRepository.findById(username).get().getBalance();
+    }
+
+    // 잔고가 부족해서 대기 중인 1_000 원 주문
+    static Order pending(String username) {
+        Order order = new Order();
+        order.setUsername(username);
+        order.setPayStatus("대기");
+        order.setAmount(PENDING_AMOUNT);
+        return order;
+    }
+
+}
@@ -4,6 +4,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
@@ -22,11 +25,16 @@ class OrderServiceTest {
     @Autowired
     OrderRepository orderRepository;
 
+    @Autowired
+    AccountRepository accountRepository;
+
     @DisplayName("정상 결제")
     @Test
     void complete() throws NotEnoughMoneyException {
+        accountRepository.save(new Account("정상", 10_000L));
         Order order = new Order();
         order.setUsername("정상");
+        order.setAmount(1_000L);
 
         orderService.order(order);
 
@@ -39,6 +47,7 @@ class OrderServiceTest {
     void runtimeException() {
         Order order = new Order();
         order.setUsername("예외");
+        order.setAmount(1_000L);
 
         assertThatThrownBy(() -> orderService.order(order))
                 .isInstanceOf(RuntimeException.class);
@@ -48,11 +57,29 @@ class OrderServiceTest {
         assertThat(orderOptional.isEmpty()).isTrue();
     }
 
+    @DisplayName("금액이 없거나 0 이하인 주문은 저장하지 않고 거부함")
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(longs = {0L, -1_000L})
+    void rejectNonPositiveAmount(Long amount) {
+        accountRepository.save(new Account("무료주문", 10_000L));
+        Order order = new Order();
+        order.setUsername("무료주문");
+        order.setAmount(amount);
+
+        assertThatThrownBy(() -> orderService.order(order))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(order.getId()).isNull();
+        assertThat(accountRepository.findById("무료주문").orElseThrow().getBalance()).isEqualTo(10_000L);
+    }
+
     @DisplayName("잔고 부족 예외 발생")
     @Test
     void bizException() {
         Order order = new Order();
         order.setUsername("잔고부족");
+        order.setAmount(10_000L); // 계좌가 없으므로 잔고 0
 
         try {
             orderService.order(order);
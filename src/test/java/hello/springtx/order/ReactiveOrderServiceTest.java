@@ -0,0 +1,167 @@
+package hello.springtx.order;
+
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.test.StepVerifier;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest
+class ReactiveOrderServiceTest {
+
+    @Autowired
+    ReactiveOrderService reactiveOrderService;
+
+    @Autowired
+    ReactiveOrderRepository reactiveOrderRepository;
+
+    @Autowired
+    ReactiveAccountRepository reactiveAccountRepository;
+
+    @Autowired
+    ApplicationContext applicationContext;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @DisplayName("R2DBC 풀은 ConnectionFactory 빈이 아니므로 JPA 쪽 DataSource 자동 구성이 그대로 동작함")
+    @Test
+    void poolDoesNotReplaceDataSource() {
+        assertThat(applicationContext.getBeanNamesForType(ConnectionFactory.class)).isEmpty();
+        assertThat(applicationContext.getBeanNamesForType(DataSource.class)).isNotEmpty();
+        assertThat(applicationContext.getBean(ReactiveOrderConnectionPool.class).getConnectionFactory()).isNotNull();
+    }
+
+    @DisplayName("R2DBC 는 JPA 와 같은 DB 를 사용함: 잔고는 하나이고 주문과 아웃박스 이벤트가 JPA 쪽에서 보임")
+    @Test
+    void sharesStoreWithJpa() {
+        accountRepository.save(new Account("reactive_shared", 10_000L)); // JPA 로 입금
+        Order order = order("reactive_shared", 1_000L);
+
+        StepVerifier.create(reactiveOrderService.order(order))
+                .expectNext(order)
+                .verifyComplete();
+
+        assertThat(orderRepository.findById(order.getId()).get().getPayStatus()).isEqualTo("완료");
+        assertThat(accountRepository.findById("reactive_shared").get().getBalance()).isEqualTo(9_000L);
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from outbox_event where aggregate_id = ? and event_type = 'order.완료'",
+                Integer.class, String.valueOf(order.getId()))).isEqualTo(1);
+    }
+
+    @DisplayName("대기 주문도 아웃박스 이벤트와 함께 커밋되고, 롤백되면 이벤트도 남지 않음")
+    @Test
+    void outboxFollowsTransaction() {
+        Order pending = order("reactive_pending", 10_000L); // 계좌 없음
+        StepVerifier.create(reactiveOrderService.order(pending))
+                .expectError(NotEnoughMoneyException.class)
+                .verify();
+        assertThat(countEvents(pending)).isEqualTo(1);
+
+        accountRepository.save(new Account("예외", 10_000L));
+        Order failed = order("예외", 1_000L);
+        StepVerifier.create(reactiveOrderService.order(failed))
+                .expectError(RuntimeException.class)
+                .verify();
+        assertThat(countEvents(failed)).isZero();
+        assertThat(accountRepository.findById("예외").get().getBalance()).isEqualTo(10_000L);
+    }
+
+    @Test
+    void r2dbcUrlFromH2MemoryJdbcUrl() {
+        assertThat(ReactiveOrderConfig.toR2dbcUrl("jdbc:h2:mem:abc;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"))
+                .isEqualTo("r2dbc:h2:mem:///abc?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        assertThat(ReactiveOrderConfig.toR2dbcUrl("jdbc:h2:mem:abc")).isEqualTo("r2dbc:h2:mem:///abc");
+        assertThatThrownBy(() -> ReactiveOrderConfig.toR2dbcUrl("jdbc:postgresql://localhost/db"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @DisplayName("정상 결제")
+    @Test
+    void complete() {
+        reactiveAccountRepository.save(new Account("reactive_정상", 10_000L)).block();
+        Order order = order("reactive_정상", 1_000L);
+
+        StepVerifier.create(reactiveOrderService.order(order))
+                .expectNext(order)
+                .verifyComplete();
+
+        StepVerifier.create(reactiveOrderRepository.findById(order.getId()))
+                .assertNext(found -> assertThat(found.getPayStatus()).isEqualTo("완료"))
+                .verifyComplete();
+        StepVerifier.create(reactiveAccountRepository.findBalance("reactive_정상"))
+                .expectNext(9_000L)
+                .verifyComplete();
+    }
+
+    @DisplayName("시스템 예외 발생")
+    @Test
+    void runtimeException() {
+        reactiveAccountRepository.save(new Account("예외", 10_000L)).block();
+        Order order = order("예외", 1_000L);
+
+        StepVerifier.create(reactiveOrderService.order(order))
+                .expectError(RuntimeException.class)
+                .verify();
+
+        // 저장하려고 했던 order 데이터가 롤백되어서 조회되지 않음
+        StepVerifier.create(reactiveOrderRepository.findById(order.getId()))
+                .verifyComplete();
+    }
+
+    @DisplayName("금액이 없거나 0 이하인 주문은 거부함")
+    @Test
+    void rejectNonPositiveAmount() {
+        StepVerifier.create(reactiveOrderService.order(order("무료주문", 0L)))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(reactiveOrderService.order(new Order()))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @DisplayName("잔고 부족 예외 발생")
+    @Test
+    void bizException() {
+        Order order = order("잔고부족", 10_000L); // 계좌가 없으므로 잔고 0
+
+        StepVerifier.create(reactiveOrderService.order(order)
+                        .doOnError(NotEnoughMoneyException.class,
+                                e -> log.info("고객에게 잔고 부족을 알리고 별도의 계좌로 입금하도록 안내")))
+                .expectError(NotEnoughMoneyException.class)
+                .verify();
+
+        // 예외가 발생했지만 커밋을 하고, 결제 상태를 대기로 변경해서 저장
+        StepVerifier.create(reactiveOrderRepository.findById(order.getId()))
+                .assertNext(found -> assertThat(found.getPayStatus()).isEqualTo("대기"))
+                .verifyComplete();
+    }
+
+    private int countEvents(Order order) {
+        return jdbcTemplate.queryForObject("select count(*) from outbox_event where aggregate_id = ?",
+                Integer.class, String.valueOf(order.getId()));
+    }
+
+    private static Order order(String username, long amount) {
+        Order order = new Order();
+        order.setUsername(username);
+        order.setAmount(amount);
+        return order;
+    }
+
+}
@@ -0,0 +1,184 @@
+package hello.springtx.outbox;
+
+import hello.springtx.order.Account;
+import hello.springtx.order.AccountRepository;
+import hello.springtx.order.NotEnoughMoneyException;
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.*;
+
+// 워커 쓰레드는 기본으로 꺼져 있으므로 (springtx.outbox.relay.enabled=false) relay() 를 직접 호출함
+@SpringBootTest(properties = {
+        "springtx.outbox.relay.workers=4",
+        "springtx.outbox.relay.batch-size=50"
+})
+class OutboxRelayTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    OutboxRelay outboxRelay;
+
+    @Autowired
+    OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    InMemoryOutboxPublisher publisher;
+
+    @BeforeEach
+    void beforeEach() {
+        outboxRelay.relayAll();
+        publisher.clear();
+    }
+
+    @DisplayName("주문과 같은 트랜잭션에서 아웃박스에 저장되고, 롤백되면 저장되지 않음")
+    @Test
+    void writeInOrderTransaction() {
+        Order completed = order("outbox_정상");
+        Order pending = order("잔고부족", 10_000L); // 계좌가 없으므로 잔고 0
+        Order failed = order("예외");
+
+        assertThatCode(() -> orderService.order(completed)).doesNotThrowAnyException();
+        assertThatThrownBy(() -> orderService.order(pending)).isInstanceOf(NotEnoughMoneyException.class);
+        assertThatThrownBy(() -> orderService.order(failed)).isInstanceOf(RuntimeException.class);
+
+        assertThat(outboxEventRepository.findAll())
+                .extracting(OutboxEvent::getAggregateId, OutboxEvent::getEventType)
+                .containsExactlyInAnyOrder(
+                        tuple(String.valueOf(completed.getId()), "order.완료"),
+                        tuple(String.valueOf(pending.getId()), "order.대기"));
+    }
+
+    @DisplayName("발행한 이벤트는 삭제됨")
+    @Test
+    void publishAndDelete() throws NotEnoughMoneyException {
+        for (int i = 0; i < 120; i++) {
+            orderService.order(order("outbox_relay_" + i));
+        }
+
+        assertThat(outboxRelay.relayAll()).isEqualTo(120);
+
+        assertThat(publisher.published()).hasSize(120);
+        assertThat(outboxEventRepository.count()).isZero();
+    }
+
+    @DisplayName("발행이 실패하면 이벤트가 남아있다가 다음 폴링에 발행됨")
+    @Test
+    void keepEventsOnPublishFailure() throws NotEnoughMoneyException {
+        orderService.order(order("outbox_retry"));
+        publisher.failNext();
+
+        assertThatThrownBy(() -> outboxRelay.relayAll()).isInstanceOf(IllegalStateException.class);
+        assertThat(outboxEventRepository.count()).isEqualTo(1);
+
+        assertThat(outboxRelay.relayAll()).isEqualTo(1);
+        assertThat(outboxEventRepository.count()).isZero();
+    }
+
+    @DisplayName("워커 여러 개가 동시에 발행해도 이벤트마다 한 번씩만 발행됨")
+    @Test
+    void concurrentWorkers() throws Exception {
+        for (int i = 0; i < 400; i++) {
+            orderService.order(order("outbox_worker_" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int workerNo = 0; workerNo < 4; workerNo++) {
+                int worker = workerNo;
+                futures.add(executor.submit(() -> {
+                    int total = 0;
+                    int count;
+                    while ((count = outboxRelay.relay(worker)) > 0) {
+                        total += count;
+                    }
+                    return total;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> future : futures) {
+                total += future.get();
+            }
+            assertThat(total).isEqualTo(400);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(publisher.published()).extracting(OutboxEvent::getId).hasSize(400).doesNotHaveDuplicates();
+        assertThat(outboxEventRepository.count()).isZero();
+    }
+
+    // 잔고가 충분한 계좌로 결제하는 주문
+    private Order order(String username) {
+        accountRepository.save(new Account(username, 10_000L));
+        return order(username, 1_000L);
+    }
+
+    private static Order order(String username, long amount) {
+        Order order = new Order();
+        order.setUsername(username);
+        order.setAmount(amount);
+        return order;
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        InMemoryOutboxPublisher inMemoryOutboxPublisher() {
+            return new InMemoryOutboxPublisher();
+        }
+
+    }
+
+    // 테스트용 발행기: 발행된 이벤트를 메모리에 모아둠
+    static class InMemoryOutboxPublisher implements OutboxPublisher {
+
+        private final List<OutboxEvent> published = new CopyOnWriteArrayList<>();
+
+        private final AtomicBoolean failNext = new AtomicBoolean();
+
+        @Override
+        public void publish(List<OutboxEvent> events) {
+            if (failNext.compareAndSet(true, false)) {
+                throw new IllegalStateException("발행 실패");
+            }
+            published.addAll(events);
+        }
+
+        List<OutboxEvent> published() {
+            return published;
+        }
+
+        void failNext() {
+            failNext.set(true);
+        }
+
+        void clear() {
+            published.clear();
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package hello.springtx.propagation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest
+class AuditLogWriterTest {
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    LogRepository logRepository;
+
+    @Autowired
+    AuditLogWriter auditLogWriter;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void beforeEach() {
+        memberRepository.clear();
+        logRepository.clear();
+    }
+
+    @Test
+    void joinV3_commit() {
+        String username = "joinV3_commit";
+
+        memberService.joinV3(username);
+        auditLogWriter.flush(); // 워커가 이미 꺼내간 배치도 저장이 끝날 때까지 기다림
+
+        AuditLogWriter.Stats stats = auditLogWriter.stats();
+        assertThat(stats.getWritten() + stats.getFailed() + stats.getDropped()).isGreaterThanOrEqualTo(stats.getEnqueued());
+        assertThat(memberRepository.findByUsername(username)).isPresent();
+        assertThat(logRepository.findByMessage(username)).isPresent();
+    }
+
+    @Test
+    void flushWaitsForBatchTakenByWorker() throws InterruptedException {
+        AuditLogProperties properties = new AuditLogProperties();
+        properties.setBatchSize(10);
+        AuditLogWriter writer = new AuditLogWriter(logRepository, transactionManager, properties);
+        writer.start();
+        try {
+            for (int i = 0; i < 100; i++) {
+                writer.write(new Log("flushWaits_" + i));
+            }
+            writer.flush();
+
+            // 워커와 flush() 중 누가 저장했든 flush() 가 끝나면 모두 저장되어 있음
+            assertThat(writer.stats().getWritten()).isEqualTo(100);
+            for (int i = 0; i < 100; i++) {
+                assertThat(logRepository.findByMessage("flushWaits_" + i)).isPresent();
+            }
+        } finally {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void joinV3_rollback() {
+        String username = "joinV3_rollback";
+
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.executeWithoutResult(status -> {
+            memberService.joinV3(username);
+            status.setRollbackOnly();
+        });
+        auditLogWriter.flush();
+
+        // 회원 트랜잭션이 롤백되었으므로 afterCommit이 호출되지 않아 로그도 큐에 들어가지 않음
+        assertThat(memberRepository.findByUsername(username)).isEmpty();
+        assertThat(logRepository.findByMessage(username)).isEmpty();
+    }
+
+    @Test
+    void overflow_dropNewest() {
+        AuditLogProperties properties = new AuditLogProperties();
+        properties.setCapacity(1);
+        properties.setOverflowPolicy(AuditLogProperties.OverflowPolicy.DROP_NEWEST);
+        AuditLogWriter writer = new AuditLogWriter(logRepository, transactionManager, properties); // 워커를 시작하지 않음
+
+        writer.write(new Log("overflow_1"));
+        writer.write(new Log("overflow_2"));
+
+        AuditLogWriter.Stats stats = writer.stats();
+        log.info("stats={}", stats);
+        assertThat(stats.getEnqueued()).isEqualTo(1);
+        assertThat(stats.getDropped()).isEqualTo(1);
+
+        writer.flush();
+        assertThat(writer.stats().getWritten()).isEqualTo(1);
+        assertThat(logRepository.findByMessage("overflow_1")).isPresent();
+        assertThat(logRepository.findByMessage("overflow_2")).isEmpty();
+    }
+
+    @Test
+    void overflow_dropOldest() {
+        AuditLogProperties properties = new AuditLogProperties();
+        properties.setCapacity(1);
+        properties.setOverflowPolicy(AuditLogProperties.OverflowPolicy.DROP_OLDEST);
+        AuditLogWriter writer = new AuditLogWriter(logRepository, transactionManager, properties);
+
+        writer.write(new Log("overflowOldest_1"));
+        writer.write(new Log("overflowOldest_2"));
+        writer.flush();
+
+        assertThat(writer.stats().getDropped()).isEqualTo(1);
+        assertThat(logRepository.findByMessage("overflowOldest_1")).isEmpty();
+        assertThat(logRepository.findByMessage("overflowOldest_2")).isPresent();
+    }
+
+}
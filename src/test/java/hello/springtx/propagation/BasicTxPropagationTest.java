@@ -164,5 +164,30 @@ public class BasicTxPropagationTest {
         transactionManager.commit(outerStatus);
     }
 
+    @DisplayName("NESTED로 생성한 내부 트랜잭션 롤백")
+    @Test
+    void innerRollbackWithNested() {
+        log.info("외부 트랜잭션 시작");
+        TransactionStatus outerStatus = transactionManager.getTransaction(new DefaultTransactionAttribute());
+
+        log.info("내부 트랜잭션 시작");
+        DefaultTransactionAttribute definition = new DefaultTransactionAttribute();
+        definition.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED); // 외부 트랜잭션과 같은 커넥션에 세이브포인트를 만듦
+        TransactionStatus innerStatus = transactionManager.getTransaction(definition);
+        log.info("inner: 새로 시작된 트랜잭션인가?={}, 세이브포인트가 있는가?={}", innerStatus.isNewTransaction(), innerStatus.hasSavepoint());
+        assertThat(innerStatus.isNewTransaction()).isFalse();
+        assertThat(innerStatus.hasSavepoint()).isTrue();
+
+        log.info("내부 트랜잭션 롤백");
+        transactionManager.rollback(innerStatus);
+        /*
+        세이브포인트까지만 롤백하고 rollbackOnly 로 마킹하지 않음 (REQUIRED 로 참여한 내부 트랜잭션 롤백과의 차이)
+        REQUIRES_NEW 와 달리 커넥션을 하나만 사용하고 외부 트랜잭션을 보류하지 않음
+         */
+
+        log.info("외부 트랜잭션 커밋");
+        assertThat(outerStatus.isRollbackOnly()).isFalse();
+        transactionManager.commit(outerStatus);
+    }
 
 }
@@ -0,0 +1,130 @@
+package hello.springtx.propagation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class LogBucketsTest {
+
+    @Autowired
+    LogRepository logRepository;
+
+    @Autowired
+    LogBuckets logBuckets;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @DisplayName("created_at 날짜의 테이블에 저장되고, 기간을 주면 그 기간의 테이블만 조회함")
+    @Test
+    void routeByCreatedAt() {
+        LocalDateTime now = logBuckets.now();
+        logBuckets.ensure(now.toLocalDate().minusDays(3));
+        logRepository.saveAll(Arrays.asList(
+                log("bucket_today", now),
+                log("bucket_3_days_ago", now.minusDays(3))));
+
+        LocalDate today = now.toLocalDate();
+        assertThat(logBuckets.all()).contains(today, today.minusDays(3));
+
+        assertThat(logRepository.findByMessage("bucket_3_days_ago")).isPresent();
+        assertThat(logRepository.findByMessage("bucket_3_days_ago", today.minusDays(3), today.minusDays(3))).isPresent();
+        assertThat(logRepository.findByMessage("bucket_3_days_ago", today.minusDays(1), today)).isEmpty();
+        assertThat(logRepository.findByMessage("bucket_today", today, today)).isPresent();
+    }
+
+    @DisplayName("id 는 날짜 테이블과 관계없이 유일함")
+    @Test
+    void uniqueIdsAcrossBuckets() {
+        LocalDateTime now = logBuckets.now();
+        logBuckets.ensure(now.toLocalDate().minusDays(1));
+        logBuckets.ensure(now.toLocalDate().minusDays(2));
+        List<Log> logs = Stream.of(0, 1, 2, 0, 1, 2)
+                .map(days -> log("bucket_id_" + days, now.minusDays(days)))
+                .collect(Collectors.toList());
+
+        logRepository.saveAll(logs);
+
+        assertThat(logs).extracting(Log::getId).doesNotHaveDuplicates().doesNotContainNull();
+    }
+
+    @DisplayName("보관 기간이 지난 날짜 테이블은 통째로 삭제됨")
+    @Test
+    void dropExpiredBuckets() {
+        LocalDateTime expired = logBuckets.now().minusDays(40);
+        logBuckets.ensure(expired.toLocalDate());
+        logRepository.saveAll(Arrays.asList(log("bucket_expired", expired)));
+        assertThat(logBuckets.all()).contains(expired.toLocalDate());
+
+        assertThat(logBuckets.dropExpired()).isGreaterThanOrEqualTo(1);
+
+        assertThat(logBuckets.all()).doesNotContain(expired.toLocalDate());
+        assertThat(logRepository.findByMessage("bucket_expired", expired.toLocalDate(), expired.toLocalDate())).isEmpty();
+    }
+
+    @DisplayName("로그 쓰기는 날짜 테이블을 만들지 않음: 없는 날짜에 쓰면 커넥션을 더 요청하지 않고 실패함")
+    @Test
+    void writeToMissingBucketFails() {
+        LocalDateTime missing = logBuckets.now().minusDays(20);
+
+        assertThatThrownBy(() -> logRepository.saveAll(Arrays.asList(log("bucket_missing", missing))))
+                .isInstanceOf(InvalidDataAccessResourceUsageException.class);
+        assertThat(logBuckets.all()).doesNotContain(missing.toLocalDate());
+    }
+
+    @DisplayName("트랜잭션 안에서는 날짜 테이블을 만들 수 없음")
+    @Test
+    void ensureOutsideTransactionOnly() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        LocalDate date = logBuckets.now().toLocalDate().minusDays(21);
+
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> logBuckets.ensure(date)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @DisplayName("전체 스트리밍은 날짜 테이블을 오래된 것부터 이어서 읽음")
+    @Test
+    void streamAcrossBuckets() {
+        LocalDateTime now = logBuckets.now();
+        logBuckets.ensure(now.toLocalDate().minusDays(5));
+        logRepository.saveAll(Arrays.asList(
+                log("bucket_stream_new", now),
+                log("bucket_stream_old", now.minusDays(5))));
+
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setReadOnly(true);
+        txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+
+        List<String> messages = txTemplate.execute(status -> {
+            try (Stream<Log> logs = logRepository.streamAll()) {
+                return logs.map(Log::getMessage)
+                        .filter(message -> message.startsWith("bucket_stream_"))
+                        .collect(Collectors.toList());
+            }
+        });
+
+        assertThat(messages).containsExactly("bucket_stream_old", "bucket_stream_new");
+    }
+
+    private static Log log(String message, LocalDateTime createdAt) {
+        Log logEntity = new Log(message);
+        logEntity.setCreatedAt(createdAt);
+        return logEntity;
+    }
+
+}
@@ -0,0 +1,106 @@
+package hello.springtx.propagation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+joinV2 의 로그 저장을 REQUIRES_NEW 로 분리할 때와 NESTED(세이브포인트)로 분리할 때의 지연 시간과 커넥션 사용량 비교. ./gradlew benchmark 로 실행.
+- REQUIRES_NEW : 요청마다 커넥션 2개 (회원 트랜잭션을 보류한 채 하나 더 가져옴), 동시 요청이 풀 크기의 절반을 넘으면 커넥션을 기다림
+- NESTED       : 요청마다 커넥션 1개, 세이브포인트 생성 / 해제만 추가됨
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.springframework.transaction.interceptor=info",
+        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=info",
+        "logging.level.org.hibernate.resource.transaction=info",
+        "springtx.datasource.guard.enabled=true"
+})
+class LogPropagationBenchmarkTest {
+
+    static final int THREADS = 8;
+    static final int REQUESTS = 2_000;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void requiresNewVersusNested() throws InterruptedException {
+        // 워밍업
+        run("warmup_requiresNew", memberService::joinV2RequiresNew);
+        run("warmup_nested", memberService::joinV2Nested);
+
+        Result requiresNew = run("requiresNew", memberService::joinV2RequiresNew);
+        Result nested = run("nested", memberService::joinV2Nested);
+
+        log.info("requiresNew {}", requiresNew);
+        log.info("nested      {}", nested);
+        assertThat(nested.borrowsPerRequest).isLessThan(requiresNew.borrowsPerRequest);
+        assertThat(nested.nestedBorrows).isZero();
+    }
+
+    private Result run(String label, Consumer<String> join) throws InterruptedException {
+        double borrows = borrows();
+        double nestedBorrows = nestedBorrows();
+        AtomicInteger sequence = new AtomicInteger();
+        AtomicLong latencyNanos = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            executor.execute(() -> {
+                int n = sequence.incrementAndGet();
+                // 10건 중 1건은 로그 저장이 실패함
+                String username = (n % 10 == 0 ? "로그예외_" : "") + "propagation_" + label + "_" + n;
+                long requestStart = System.nanoTime();
+                join.accept(username);
+                latencyNanos.addAndGet(System.nanoTime() - requestStart);
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(
+                REQUESTS / (elapsed / 1e9),
+                latencyNanos.get() / (double) REQUESTS / 1_000,
+                (borrows() - borrows) / REQUESTS,
+                (long) (nestedBorrows() - nestedBorrows));
+    }
+
+    private double borrows() {
+        return meterRegistry.get("datasource.guard.wait").tag("pool", "dataSource").timer().count();
+    }
+
+    // 커넥션을 이미 가진 쓰레드가 하나 더 가져간 횟수
+    private double nestedBorrows() {
+        return meterRegistry.get("datasource.guard.nested").tag("pool", "dataSource").counter().count();
+    }
+
+    @Value
+    static class Result {
+        double opsPerSecond;
+        double averageLatencyMicros;
+        double borrowsPerRequest;
+        long nestedBorrows;
+    }
+
+}
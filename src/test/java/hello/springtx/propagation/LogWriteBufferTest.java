@@ -0,0 +1,89 @@
+package hello.springtx.propagation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class LogWriteBufferTest {
+
+    @Autowired
+    LogRepository logRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    LogBuckets logBuckets;
+
+    @DisplayName("커밋 직전에 한 번에 저장되고, 그 전에도 같은 트랜잭션에서는 조회됨")
+    @Test
+    void flushBeforeCommit() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+
+        txTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 30; i++) {
+                logRepository.save(new Log("buffer_commit_" + i));
+            }
+            assertThat(countByPrefix("buffer_commit_")).isZero(); // 아직 insert 되지 않음
+            assertThat(logRepository.findByMessage("buffer_commit_7")).isPresent();
+        });
+
+        assertThat(countByPrefix("buffer_commit_")).isEqualTo(30);
+        assertThat(logRepository.findByMessage("buffer_commit_7")).isPresent();
+    }
+
+    @DisplayName("롤백되면 버퍼를 버리고 insert 하지 않음")
+    @Test
+    void discardOnRollback() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+
+        txTemplate.executeWithoutResult(status -> {
+            logRepository.save(new Log("buffer_rollback"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(logRepository.findByMessage("buffer_rollback")).isEmpty();
+    }
+
+    @DisplayName("REQUIRES_NEW 트랜잭션은 자기 버퍼를 따로 가지고 따로 커밋됨")
+    @Test
+    void requiresNewHasOwnBuffer() {
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        TransactionTemplate inner = new TransactionTemplate(transactionManager);
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        outer.executeWithoutResult(status -> {
+            logRepository.save(new Log("buffer_outer"));
+            inner.executeWithoutResult(innerStatus -> logRepository.save(new Log("buffer_inner")));
+            // 재개된 바깥 트랜잭션의 버퍼는 그대로 남아있음
+            assertThat(logRepository.findByMessage("buffer_outer")).isPresent();
+            status.setRollbackOnly();
+        });
+
+        assertThat(logRepository.findByMessage("buffer_inner")).isPresent();
+        assertThat(logRepository.findByMessage("buffer_outer")).isEmpty();
+    }
+
+    private int countByPrefix(String prefix) {
+        int count = 0;
+        for (LocalDate date : logBuckets.all()) {
+            count += jdbcTemplate.queryForObject("select count(*) from " + logBuckets.table(date) + " where message like ?",
+                    Integer.class, prefix + "%");
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,72 @@
+package hello.springtx.propagation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("cache")
+class MemberCacheTest {
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberLookupCache lookupCache;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @BeforeEach
+    void beforeEach() {
+        memberRepository.clear();
+    }
+
+    @Test
+    void committedJoinIsCached() {
+        String username = "cache_joinV1";
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long secondLevelHits = statistics.getSecondLevelCacheHitCount();
+        long queries = statistics.getQueryExecutionCount();
+
+        memberService.joinV1(username);
+
+        // 커밋 이후에 캐시에 반영됨
+        assertThat(lookupCache.getId(username)).isNotNull();
+
+        assertThat(memberRepository.findByUsername(username)).isPresent();
+        assertThat(memberRepository.findByUsername(username)).isPresent();
+
+        // 쿼리 없이 id -> 2차 캐시로 조회됨
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(queries);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThanOrEqualTo(secondLevelHits + 2);
+        log.info("lookup stats={}", lookupCache.stats());
+        assertThat(lookupCache.stats().hitCount()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void rolledBackJoinIsNotCached() {
+        String username = "로그예외_cache_joinV1";
+
+        assertThatThrownBy(() -> memberService.joinV1(username))
+                .isInstanceOf(RuntimeException.class);
+
+        // 롤백된 트랜잭션에서 저장하려던 회원은 캐시에 반영되지 않음
+        assertThat(lookupCache.getId(username)).isNull();
+        assertThat(memberRepository.findByUsername(username)).isEmpty();
+    }
+
+}
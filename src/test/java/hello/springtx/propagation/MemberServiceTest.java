@@ -116,4 +116,43 @@ class MemberServiceTest {
          */
     }
 
-}
\ No newline at end of file
+    /*
+    Service의 joinV2Nested()에 @Transactional 사용 O
+    LogRepository의 saveNested()에 @Transactional(propagation = Propagation.NESTED) 옵션 사용
+     */
+    @Test
+    void tx_joinV2Nested_ex() {
+        String username = "로그예외_tx_joinV2Nested_ex";
+
+        memberService.joinV2Nested(username);
+
+        assertThat(memberRepository.findByUsername(username)).isPresent();
+        assertThat(logRepository.findByMessage(username)).isEmpty();
+        /*
+        로그 트랜잭션은 회원 트랜잭션과 같은 커넥션의 세이브포인트이므로 예외가 발생하면 세이브포인트까지만 롤백되고,
+        REQUIRED 로 참여했을 때와 달리 rollbackOnly 도 마킹되지 않으므로 회원 트랜잭션은 정상적으로 커밋됨.
+        REQUIRES_NEW 와 결과는 같지만 커넥션을 하나만 사용하고 회원 트랜잭션을 보류 / 재개하지 않음.
+         */
+    }
+
+    @Test
+    void tx_joinV2Nested() {
+        String username = "tx_joinV2Nested";
+
+        memberService.joinV2Nested(username);
+
+        assertThat(memberRepository.findByUsername(username)).isPresent();
+        assertThat(logRepository.findByMessage(username)).isPresent();
+    }
+
+    @Test
+    void tx_joinV2RequiresNew_ex() {
+        String username = "로그예외_tx_joinV2RequiresNew_ex";
+
+        memberService.joinV2RequiresNew(username);
+
+        assertThat(memberRepository.findByUsername(username)).isPresent();
+        assertThat(logRepository.findByMessage(username)).isEmpty();
+    }
+
+}
@@ -0,0 +1,79 @@
+package hello.springtx.propagation;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class ReadOnlyQueryTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberLookupCache lookupCache;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void readOnlyTransactionSession() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setReadOnly(true);
+
+        txTemplate.executeWithoutResult(status -> {
+            Session session = em.unwrap(Session.class);
+            assertThat(session.isDefaultReadOnly()).isTrue();
+            assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+        });
+    }
+
+    // 쓰기 트랜잭션에 참여해서 조회한 엔티티는 수정할 수 있어야 함 (읽기 전용이면 변경이 조용히 사라짐)
+    @Test
+    void findByUsernameLoadsWritableEntityInsideWriteTransaction() {
+        String username = "readOnly_findByUsername_write";
+        memberRepository.save(new Member(username));
+
+        assertReadOnly(username, false, false);
+    }
+
+    @Test
+    void findByUsernameLoadsReadOnlyEntityInsideReadOnlyTransaction() {
+        String username = "readOnly_findByUsername_read";
+        memberRepository.save(new Member(username));
+
+        assertReadOnly(username, true, true);
+    }
+
+    // 쿼리로 조회하는 경로와 캐시의 id 로 em.find 하는 경로가 같은 결과여야 함
+    private void assertReadOnly(String username, boolean readOnlyTransaction, boolean expected) {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setReadOnly(readOnlyTransaction);
+
+        lookupCache.evict(username);
+        memberRepository.clear();
+        txTemplate.executeWithoutResult(status -> {
+            Member member = memberRepository.findByUsername(username).get(); // 쿼리 (조회 후 커밋되면 캐시에 id 저장)
+            assertThat(em.unwrap(Session.class).isReadOnly(member)).isEqualTo(expected);
+        });
+
+        assertThat(lookupCache.getId(username)).isNotNull();
+        memberRepository.clear();
+        txTemplate.executeWithoutResult(status -> {
+            Member member = memberRepository.findByUsername(username).get(); // 캐시 적중 -> em.find
+            assertThat(em.unwrap(Session.class).isReadOnly(member)).isEqualTo(expected);
+        });
+    }
+
+}
@@ -0,0 +1,157 @@
+package hello.springtx.settlement;
+
+import hello.springtx.order.Account;
+import hello.springtx.order.AccountRepository;
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest(properties = {
+        "springtx.settlement.chunk-size=50",
+        "springtx.settlement.workers=4"
+})
+class SettlementJobTest {
+
+    static final int ORDERS = 1_000;
+
+    static final long AMOUNT = 10L;
+
+    @Autowired
+    SettlementJob settlementJob;
+
+    @Autowired
+    SettlementCheckpointRepository checkpointRepository;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    PendingOrderSettlementProcessor pendingOrderSettlementProcessor;
+
+    @Test
+    void settleAllPendingOrders() {
+        List<Order> orders = savePending("settleAll");
+
+        SettlementJob.Result result = settlementJob.run("settleAll");
+
+        log.info("result={}", result);
+        assertThat(result.isCompleted()).isTrue();
+        assertThat(result.getProcessed()).isGreaterThanOrEqualTo(ORDERS);
+        assertThat(checkpointRepository.findByJobId("settleAll")).hasSize(4);
+        assertAllCompleted(orders);
+        assertThat(balance("settleAll")).isZero();
+    }
+
+    @DisplayName("잔고가 부족한 주문은 차감 없이 대기로 남음")
+    @Test
+    void insufficientBalanceStaysPending() {
+        List<Order> orders = savePending("settleHalf", ORDERS / 2 * AMOUNT);
+
+        SettlementJob.Result result = settlementJob.run("settleHalf");
+
+        assertThat(result.isCompleted()).isTrue();
+        List<Order> found = orderRepository.findAllById(ids(orders));
+        assertThat(found).filteredOn(order -> order.getPayStatus().equals("완료")).hasSize(ORDERS / 2);
+        assertThat(found).filteredOn(order -> order.getPayStatus().equals("대기"))
+                .hasSize(ORDERS / 2)
+                .allSatisfy(order -> assertThat(order.getVersion()).isZero());
+        assertThat(balance("settleHalf")).isZero();
+    }
+
+    @Test
+    void resumeFromLastCommittedChunk() {
+        List<Order> orders = savePending("resume");
+
+        // 파티션마다 세 번째 청크에서 실패 -> 앞의 두 청크까지만 커밋됨
+        AtomicInteger chunks = new AtomicInteger();
+        assertThatThrownBy(() -> settlementJob.run("resume", chunk -> {
+            if (chunks.incrementAndGet() > 8) {
+                throw new IllegalStateException("정산 중 장애");
+            }
+            pendingOrderSettlementProcessor.process(chunk);
+        })).isInstanceOf(IllegalStateException.class);
+
+        SettlementJob.Result failed = settlementJob.result("resume");
+        assertThat(failed.isCompleted()).isFalse();
+        assertThat(failed.getProcessed()).isPositive().isLessThan(ORDERS);
+
+        // 같은 jobId 로 다시 실행하면 체크포인트 이후부터 처리하고, 이미 처리한 주문을 다시 처리하지 않음
+        SettlementJob.Result resumed = settlementJob.run("resume");
+        assertThat(resumed.isCompleted()).isTrue();
+        assertThat(orderRepository.findAllById(ids(orders)))
+                .allSatisfy(order -> assertThat(order.getVersion()).isEqualTo(1L));
+        assertAllCompleted(orders);
+        // 롤백된 청크의 차감도 롤백되므로 주문마다 정확히 한 번 차감됨
+        assertThat(balance("resume")).isZero();
+    }
+
+    @Test
+    void retryChunkOnTransientFailure() {
+        List<Order> orders = savePending("retryChunk");
+
+        AtomicInteger failures = new AtomicInteger();
+        SettlementJob.Result result = settlementJob.run("retryChunk", chunk -> {
+            if (failures.getAndIncrement() == 0) {
+                throw new CannotAcquireLockException("락 타임아웃");
+            }
+            pendingOrderSettlementProcessor.process(chunk);
+        });
+
+        assertThat(result.isCompleted()).isTrue();
+        assertAllCompleted(orders);
+        assertThat(balance("retryChunk")).isZero();
+    }
+
+    // 모든 주문을 결제할 만큼 입금된 계좌
+    private List<Order> savePending(String username) {
+        return savePending(username, ORDERS * AMOUNT);
+    }
+
+    private List<Order> savePending(String username, long balance) {
+        accountRepository.save(new Account(username, balance));
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setUsername(username);
+            order.setPayStatus("대기");
+            order.setAmount(AMOUNT);
+            orders.add(order);
+        }
+        orderRepository.saveAllInBatch(orders);
+        return orders;
+    }
+
+    private long balance(String username) {
+        return accountRepository.findById(username).get().getBalance();
+    }
+
+    private void assertAllCompleted(List<Order> orders) {
+        assertThat(orderRepository.findAllById(ids(orders)))
+                .hasSize(orders.size())
+                .allSatisfy(order -> assertThat(order.getPayStatus()).isEqualTo("완료"));
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        List<Long> ids = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            ids.add(order.getId());
+        }
+        return ids;
+    }
+
+}
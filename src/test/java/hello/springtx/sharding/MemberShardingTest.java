@@ -0,0 +1,157 @@
+package hello.springtx.sharding;
+
+import hello.springtx.propagation.LogRepository;
+import hello.springtx.propagation.Member;
+import hello.springtx.propagation.MemberRepository;
+import hello.springtx.propagation.MemberService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "springtx.member.sharding.enabled=true",
+        "springtx.member.sharding.shards[0].url=jdbc:h2:mem:member-shard-0-${random.uuid};DB_CLOSE_DELAY=-1",
+        "springtx.member.sharding.shards[1].url=jdbc:h2:mem:member-shard-1-${random.uuid};DB_CLOSE_DELAY=-1",
+        "springtx.member.sharding.shards[2].url=jdbc:h2:mem:member-shard-2-${random.uuid};DB_CLOSE_DELAY=-1"
+})
+class MemberShardingTest {
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    MemberShards memberShards;
+
+    @Autowired
+    ShardedMemberRepository shardedMemberRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    LogRepository logRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @DisplayName("joinV1 은 username 을 가진 샤드에만 Member 를 저장하고 Log 는 메인 DB 에 저장함")
+    @Test
+    void joinV1RoutesToOwningShard() {
+        String username = "shard_joinV1";
+
+        memberService.joinV1(username);
+
+        MemberShard owner = memberShards.shardOf(username);
+        for (MemberShard shard : memberShards.all()) {
+            assertThat(countByUsername(shard, username)).isEqualTo(shard == owner ? 1 : 0);
+        }
+        Member member = shardedMemberRepository.findByUsername(username).orElseThrow();
+        assertThat(memberShards.shardOf(member.getId())).isSameAs(owner);
+        assertThat(countInMainDb(username)).isZero();
+        assertThat(logRepository.findByMessage(username)).isPresent();
+    }
+
+    @DisplayName("joinV2 / joinV3 / joinCoalesced 와 MemberRepository 조회도 샤드를 사용함")
+    @Test
+    void allMemberPathsUseShards() throws Exception {
+        memberService.joinV2("shard_joinV2");
+        memberService.joinV2Nested("shard_joinV2Nested");
+        memberService.joinV3("shard_joinV3");
+        memberService.joinCoalesced("shard_joinCoalesced").get(10, TimeUnit.SECONDS);
+
+        for (String username : Arrays.asList("shard_joinV2", "shard_joinV2Nested", "shard_joinV3", "shard_joinCoalesced")) {
+            assertThat(countByUsername(memberShards.shardOf(username), username)).isEqualTo(1);
+            assertThat(countInMainDb(username)).isZero();
+            Member member = memberRepository.findByUsername(username).orElseThrow();
+            assertThat(memberShards.shardOf(member.getId())).isSameAs(memberShards.shardOf(username));
+        }
+        assertThat(memberRepository.findAll()).extracting(Member::getUsername)
+                .contains("shard_joinV2", "shard_joinV2Nested", "shard_joinV3", "shard_joinCoalesced");
+    }
+
+    @DisplayName("joinCoalesced 의 로그 저장이 실패하면 샤드에도 Member 가 저장되지 않음")
+    @Test
+    void joinCoalescedLogFailure() {
+        String username = "로그예외_shard_joinCoalesced";
+
+        assertThatThrownBy(() -> memberService.joinCoalesced(username).get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class);
+
+        assertThat(memberRepository.findByUsername(username)).isEmpty();
+    }
+
+    @DisplayName("로그 저장이 실패하면 샤드에도 Member 가 저장되지 않음")
+    @Test
+    void joinV1LogFailure() {
+        String username = "로그예외_shard_joinV1";
+
+        assertThatThrownBy(() -> memberService.joinV1(username))
+                .isInstanceOf(RuntimeException.class);
+
+        assertThat(shardedMemberRepository.findByUsername(username)).isEmpty();
+        assertThat(logRepository.findByMessage(username)).isEmpty();
+    }
+
+    @DisplayName("한 샤드의 트랜잭션 안에서 다른 샤드의 Member 를 저장하면 거부하고 그 트랜잭션을 롤백함")
+    @Test
+    void rejectCrossShardWrite() {
+        String first = "shard_cross_a";
+        String second = usernameOnOtherShard(first);
+
+        assertThatThrownBy(() -> memberShards.execute(first, status -> {
+            shardedMemberRepository.save(new Member(first));
+            shardedMemberRepository.save(new Member(second));
+            return null;
+        })).isInstanceOf(CrossShardOperationException.class);
+
+        assertThat(shardedMemberRepository.findByUsername(first)).isEmpty();
+        assertThat(shardedMemberRepository.findByUsername(second)).isEmpty();
+    }
+
+    @DisplayName("전체 샤드 집계는 샤드 트랜잭션 안에서 호출할 수 없음")
+    @Test
+    void rejectScatterInsideShardTransaction() {
+        assertThatThrownBy(() -> memberShards.execute("shard_scatter", status -> shardedMemberRepository.count()))
+                .isInstanceOf(CrossShardOperationException.class);
+        assertThatCode(() -> shardedMemberRepository.count()).doesNotThrowAnyException();
+    }
+
+    @DisplayName("username 이 모든 샤드에 퍼짐")
+    @Test
+    void distributeAcrossShards() {
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            used.add(memberShards.shardOf("shard_user_" + i).getIndex());
+        }
+        assertThat(used).hasSize(memberShards.size());
+    }
+
+    private String usernameOnOtherShard(String username) {
+        MemberShard shard = memberShards.shardOf(username);
+        for (int i = 0; ; i++) {
+            String candidate = username + "_" + i;
+            if (memberShards.shardOf(candidate) != shard) {
+                return candidate;
+            }
+        }
+    }
+
+    private long countInMainDb(String username) {
+        return jdbcTemplate.queryForObject("select count(*) from member where username = ?", Long.class, username);
+    }
+
+    private long countByUsername(MemberShard shard, String username) {
+        return shard.getJdbcTemplate().queryForObject("select count(*) from member where username = ?", Long.class, username);
+    }
+
+}
@@ -0,0 +1,93 @@
+package hello.springtx.tx;
+
+import hello.springtx.propagation.LogRepository;
+import hello.springtx.propagation.Member;
+import hello.springtx.propagation.MemberRepository;
+import hello.springtx.propagation.MemberService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+BasicTxPropagationTest 의 NESTED 는 DataSourceTransactionManager 로 확인하므로,
+여기서는 애플리케이션이 실제로 쓰는 JpaTransactionManager 에서 세이브포인트가 동작하는지 확인함.
+ */
+@SpringBootTest
+class NestedTransactionConfigTest {
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    LogRepository logRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @DisplayName("JPA 트랜잭션의 NESTED 안에서 insert 한 행은 세이브포인트까지 롤백되고 바깥 Member 는 커밋됨")
+    @Test
+    void nestedRollsBackToSavepoint() {
+        assertThat(((InstrumentedTransactionManager) transactionManager).getDelegate())
+                .isInstanceOf(JpaTransactionManager.class);
+
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        TransactionTemplate nested = new TransactionTemplate(transactionManager);
+        nested.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+
+        outer.executeWithoutResult(status -> {
+            memberRepository.save(new Member("nested_outer"));
+
+            assertThatThrownBy(() -> nested.executeWithoutResult(inner -> {
+                memberRepository.save(new Member("nested_inner"));
+                em.flush(); // 세이브포인트 안에서 insert 실행
+                assertThat(countMembers("nested_inner")).isEqualTo(1);
+                throw new IllegalStateException("세이브포인트 롤백");
+            })).isInstanceOf(IllegalStateException.class);
+
+            // 세이브포인트 롤백은 영속성 컨텍스트를 되돌리지 않으므로 insert 가 취소된 엔티티를 비움
+            em.clear();
+            assertThat(countMembers("nested_inner")).isZero();
+            assertThat(status.isRollbackOnly()).isFalse();
+        });
+
+        assertThat(countMembers("nested_outer")).isEqualTo(1);
+        assertThat(countMembers("nested_inner")).isZero();
+    }
+
+    @DisplayName("joinV2Nested: 로그 insert 가 실행된 뒤 예외가 나도 로그만 롤백되고 회원은 커밋됨")
+    @Test
+    void joinV2NestedRollsBackExecutedInsert() {
+        String username = "로그예외_nested_insert";
+
+        memberService.joinV2Nested(username);
+
+        assertThat(countMembers(username)).isEqualTo(1);
+        assertThat(logRepository.findByMessage(username)).isEmpty();
+    }
+
+    private int countMembers(String username) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from member where username = ?", Integer.class, username);
+        return count == null ? 0 : count;
+    }
+
+}
@@ -0,0 +1,153 @@
+package hello.springtx.tx;
+
+import hello.springtx.propagation.LogRepository;
+import hello.springtx.propagation.MemberRepository;
+import hello.springtx.propagation.MemberService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "springtx.tx.coalescing.window=50ms",
+        "springtx.tx.coalescing.workers=1"
+})
+class TransactionCoalescingExecutorTest {
+
+    @Autowired
+    TransactionCoalescingExecutor coalescingExecutor;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    LogRepository logRepository;
+
+    @DisplayName("여러 가입이 물리 트랜잭션 몇 개로 묶여서 커밋됨")
+    @Test
+    void coalesceCommits() throws Exception {
+        long batches = coalescingExecutor.getBatches();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(memberService.joinCoalesced("coalesce_" + i));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        assertThat(coalescingExecutor.getBatches() - batches).isLessThan(50);
+        for (int i = 0; i < 50; i++) {
+            assertThat(memberRepository.findByUsername("coalesce_" + i)).isPresent();
+            assertThat(logRepository.findByMessage("coalesce_" + i)).isPresent();
+        }
+    }
+
+    @DisplayName("실패한 가입만 세이브포인트까지 롤백되고 나머지는 같은 트랜잭션에서 커밋됨")
+    @Test
+    void rollbackOnlyFailedUnit() throws Exception {
+        long rebatches = coalescingExecutor.getRebatches();
+
+        CompletableFuture<Void> before = memberService.joinCoalesced("coalesce_savepoint_1");
+        CompletableFuture<Void> failed = memberService.joinCoalesced("로그예외_coalesce_savepoint");
+        CompletableFuture<Void> after = memberService.joinCoalesced("coalesce_savepoint_2");
+
+        before.get(10, TimeUnit.SECONDS);
+        after.get(10, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> failed.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RuntimeException.class);
+
+        assertThat(memberRepository.findByUsername("coalesce_savepoint_1")).isPresent();
+        assertThat(memberRepository.findByUsername("coalesce_savepoint_2")).isPresent();
+        assertThat(memberRepository.findByUsername("로그예외_coalesce_savepoint")).isEmpty();
+        assertThat(logRepository.findByMessage("로그예외_coalesce_savepoint")).isEmpty();
+        assertThat(coalescingExecutor.getRebatches()).isEqualTo(rebatches);
+    }
+
+    @DisplayName("실패한 작업이 등록한 afterCommit 훅은 배치가 커밋되어도 실행되지 않음")
+    @Test
+    void discardSynchronizationsOfFailedUnit() throws Exception {
+        AtomicInteger committedHooks = new AtomicInteger();
+        AtomicInteger failedHooks = new AtomicInteger();
+
+        CompletableFuture<Void> before = coalescingExecutor.submit(() -> {
+            memberService.joinV2("coalesce_sync_1");
+            afterCommit(committedHooks::incrementAndGet);
+        });
+        CompletableFuture<Void> failed = coalescingExecutor.submit(() -> {
+            afterCommit(failedHooks::incrementAndGet);
+            memberService.joinV2("로그예외_coalesce_sync"); // 로그 예외는 joinV2 에서 잡으므로 세이브포인트만 롤백됨
+            throw new IllegalStateException("작업 실패");
+        });
+
+        before.get(10, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> failed.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(committedHooks.get()).isEqualTo(1);
+        assertThat(failedHooks.get()).isZero();
+        assertThat(memberRepository.findByUsername("coalesce_sync_1")).isPresent();
+        assertThat(memberRepository.findByUsername("로그예외_coalesce_sync")).isEmpty();
+    }
+
+    @DisplayName("작업이 배치를 rollbackOnly 로 마킹하면 이미 성공한 작업은 다시 실행하지 않고 일시적 예외로 실패하고, 남은 작업만 새 배치로 실행됨")
+    @Test
+    void rebatchWhenMarkedRollbackOnly() throws Exception {
+        long rebatches = coalescingExecutor.getRebatches();
+        long units = coalescingExecutor.getUnits();
+        AtomicInteger firstRuns = new AtomicInteger();
+        AtomicInteger failedHooks = new AtomicInteger();
+
+        CompletableFuture<Void> before = coalescingExecutor.submit(() -> {
+            firstRuns.incrementAndGet();
+            memberService.joinV1("coalesce_rebatch_1");
+        });
+        // joinV1 의 @Transactional 이 배치 트랜잭션에 참여한 채로 런타임 예외를 던지므로 rollbackOnly 로 마킹됨
+        CompletableFuture<Void> failed = coalescingExecutor.submit(() -> {
+            afterCommit(failedHooks::incrementAndGet);
+            memberService.joinV1("로그예외_coalesce_rebatch");
+        });
+        CompletableFuture<Void> after = coalescingExecutor.submit(() -> memberService.joinV1("coalesce_rebatch_2"));
+
+        after.get(10, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> before.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(CoalescedBatchRolledBackException.class);
+        assertThatThrownBy(() -> failed.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RuntimeException.class);
+
+        // 첫 작업은 한 번만 실행되고, 롤백되었으므로 남은 것이 없음
+        assertThat(firstRuns.get()).isEqualTo(1);
+        assertThat(memberRepository.findByUsername("coalesce_rebatch_1")).isEmpty();
+        assertThat(memberRepository.findByUsername("coalesce_rebatch_2")).isPresent();
+        assertThat(memberRepository.findByUsername("로그예외_coalesce_rebatch")).isEmpty();
+        assertThat(failedHooks.get()).isZero();
+        assertThat(coalescingExecutor.getRebatches()).isEqualTo(rebatches + 1);
+        assertThat(coalescingExecutor.getUnits()).isEqualTo(units + 3);
+    }
+
+    private static void afterCommit(Runnable hook) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                hook.run();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,65 @@
+package hello.springtx.tx;
+
+import hello.springtx.propagation.MemberService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/*
+동시 가입 요청 10,000건을 플랫폼 쓰레드 / 가상 쓰레드로 실행했을 때 처리량(joins/sec)과 p99 지연 비교. ./gradlew benchmark 로 실행.
+가상 쓰레드는 Java 21 이상에서만 동작함 (./gradlew benchmark -PjavaVersion=21), 그 미만이면 두 결과가 같은 플랫폼 풀로 측정됨.
+지연은 제출 시점부터 측정하므로 세마포어 / 쓰레드 풀에서 기다린 시간이 포함됨.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.springframework.transaction.interceptor=info",
+        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=info",
+        "logging.level.org.hibernate.resource.transaction=info"
+})
+class TransactionExecutorBenchmarkTest {
+
+    static final int JOINS = 10_000;
+
+    @Autowired
+    MemberService memberService;
+
+    @ParameterizedTest
+    @EnumSource(TransactionExecutorProperties.Mode.class)
+    void concurrentJoins(TransactionExecutorProperties.Mode mode) throws InterruptedException {
+        TransactionExecutorProperties properties = new TransactionExecutorProperties();
+        properties.setMode(mode);
+        TransactionExecutor executor = new TransactionExecutor(properties);
+
+        long[] latencies = new long[JOINS];
+        List<CompletableFuture<Void>> futures = new ArrayList<>(JOINS);
+        long start = System.nanoTime();
+        for (int i = 0; i < JOINS; i++) {
+            int index = i;
+            String username = "load_" + mode + "_" + i;
+            long submitted = System.nanoTime();
+            futures.add(executor.submit(() -> {
+                memberService.joinV1(username);
+                latencies[index] = System.nanoTime() - submitted;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        log.info("mode={} virtual={} joins={} elapsedMs={} joins/sec={} p50Ms={} p99Ms={}",
+                mode, executor.isVirtual(), JOINS, elapsed / 1_000_000, (long) (JOINS / (elapsed / 1e9)),
+                latencies[JOINS / 2] / 1_000_000, latencies[(int) (JOINS * 0.99)] / 1_000_000);
+    }
+
+}
@@ -0,0 +1,88 @@
+package hello.springtx.tx;
+
+import hello.springtx.propagation.MemberRepository;
+import hello.springtx.propagation.MemberService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = "springtx.tx.executor.mode=virtual")
+class TransactionExecutorTest {
+
+    @Autowired
+    TransactionExecutor transactionExecutor;
+
+    @Autowired
+    TransactionExecutorProperties properties;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualOnJava21() throws Exception {
+        assertThat(transactionExecutor.isVirtual()).isTrue();
+
+        // 소스는 Java 11 로도 컴파일되므로 Thread.isVirtual 은 리플렉션으로 호출
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+        boolean ranOnVirtual = transactionExecutor.submit(() -> (Boolean) isVirtual.invoke(Thread.currentThread())).join();
+        assertThat(ranOnVirtual).isTrue();
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void fallsBackToPlatformBeforeJava21() {
+        assertThat(transactionExecutor.isVirtual()).isFalse();
+    }
+
+    @Test
+    void joinsOnExecutorThreads() {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String username = "executor_" + i;
+            futures.add(transactionExecutor.submit(() -> memberService.joinV1(username)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertThat(memberRepository.findByUsername("executor_0")).isPresent();
+        assertThat(memberRepository.findByUsername("executor_199")).isPresent();
+    }
+
+    @Test
+    void concurrencyIsBoundedByPermits() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(transactionExecutor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                    // 작업 사이에 트랜잭션 컨텍스트가 새지 않음
+                    return TransactionSynchronizationManager.isActualTransactionActive();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }));
+        }
+
+        assertThat(futures).allSatisfy(future -> assertThat(future.join()).isFalse());
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(properties.getMaxConcurrentTransactions());
+    }
+
+}
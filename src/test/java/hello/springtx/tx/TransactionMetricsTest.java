@@ -0,0 +1,99 @@
+package hello.springtx.tx;
+
+import hello.springtx.propagation.MemberService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class TransactionMetricsTest {
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void transactionManagerIsInstrumented() {
+        assertThat(transactionManager).isInstanceOf(InstrumentedTransactionManager.class);
+    }
+
+    @Test
+    void commitPerTransactionName() {
+        double commits = outcome("MemberService.joinV2", "commit");
+
+        memberService.joinV2("metrics_joinV2");
+
+        assertThat(outcome("MemberService.joinV2", "commit")).isEqualTo(commits + 1);
+        assertThat(meterRegistry.get("tx.duration").tag("name", "MemberService.joinV2").timer().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void rollbackOnlyWhenInnerRollbackIsSwallowed() {
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        outer.setName("metrics.swallowed");
+        TransactionTemplate inner = new TransactionTemplate(transactionManager);
+        inner.setName("metrics.swallowed.inner");
+
+        // 내부 트랜잭션이 롤백되며 rollbackOnly를 마킹하고, 예외를 잡은 외부 트랜잭션은 커밋 시점에 롤백됨
+        assertThatThrownBy(() -> outer.executeWithoutResult(status -> {
+            try {
+                inner.executeWithoutResult(innerStatus -> {
+                    throw new IllegalStateException("내부 롤백");
+                });
+            } catch (IllegalStateException e) {
+                // 복구
+            }
+        })).isInstanceOf(UnexpectedRollbackException.class);
+
+        assertThat(outcome("metrics.swallowed.inner", "marked_rollback_only")).isEqualTo(1);
+        assertThat(outcome("metrics.swallowed", "rollback_only")).isEqualTo(1);
+    }
+
+    @Test
+    void suspendAndResumeForRequiresNew() {
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        outer.setName("metrics.outer");
+        TransactionTemplate inner = new TransactionTemplate(transactionManager);
+        inner.setName("metrics.requiresNew");
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        outer.executeWithoutResult(status -> inner.executeWithoutResult(innerStatus -> {
+        }));
+
+        assertThat(meterRegistry.get("tx.suspend").tag("name", "metrics.requiresNew").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("tx.resume").tag("name", "metrics.requiresNew").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rollbackOnlyByInnerRollback() {
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        outer.setName("metrics.rollbackOnly");
+        TransactionTemplate inner = new TransactionTemplate(transactionManager);
+        inner.setName("metrics.rollbackOnly.inner");
+
+        assertThatThrownBy(() -> outer.executeWithoutResult(status -> inner.executeWithoutResult(innerStatus -> {
+            throw new IllegalStateException("내부 롤백");
+        })));
+
+        assertThat(outcome("metrics.rollbackOnly.inner", "marked_rollback_only")).isEqualTo(1);
+        assertThat(outcome("metrics.rollbackOnly", "rollback")).isEqualTo(1);
+    }
+
+    private double outcome(String name, String outcome) {
+        return meterRegistry.find("tx.outcome").tag("name", name).tag("outcome", outcome)
+                .counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+}
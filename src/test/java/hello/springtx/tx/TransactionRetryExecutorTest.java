@@ -0,0 +1,149 @@
+package hello.springtx.tx;
+
+import hello.springtx.order.NotEnoughMoneyException;
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderFacade;
+import hello.springtx.order.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class TransactionRetryExecutorTest {
+
+    @Autowired
+    TransactionRetryExecutor retryExecutor;
+
+    @Autowired
+    OrderFacade orderFacade;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void retryTransientFailure() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retryExecutor.execute("retryTransientFailure", () -> txTemplate.execute(status -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new CannotAcquireLockException("락 타임아웃");
+            }
+            return "ok";
+        }));
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    void giveUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryExecutor.executeWithoutResult("giveUpAfterMaxAttempts", () -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("락 타임아웃");
+        })).isInstanceOf(CannotAcquireLockException.class);
+
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    void doNotRetryNonTransientFailure() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryExecutor.executeWithoutResult("doNotRetryNonTransientFailure", () -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("제약 조건 위반");
+        })).isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void runOnceInsideTransaction() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // 바깥 트랜잭션은 이미 rollbackOnly 가 되었으므로 안에서 재시도하지 않음
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status ->
+                retryExecutor.executeWithoutResult("runOnceInsideTransaction", () -> {
+                    attempts.incrementAndGet();
+                    throw new CannotAcquireLockException("락 타임아웃");
+                }))).isInstanceOf(CannotAcquireLockException.class);
+
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void budgetExhausted() {
+        TransactionRetryProperties properties = new TransactionRetryProperties();
+        properties.setMaxAttempts(10);
+        properties.setInitialBackoff(Duration.ZERO);
+        properties.getBudget().setMaxTokens(2);
+        properties.getBudget().setRatio(0);
+        TransactionRetryExecutor executor = new TransactionRetryExecutor(properties);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> executor.executeWithoutResult("budgetExhausted", () -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("락 타임아웃");
+        })).isInstanceOf(CannotAcquireLockException.class);
+
+        // 첫 시도 + 토큰 2개 만큼의 재시도
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(executor.getBudgetExhausted()).isEqualTo(1);
+    }
+
+    @Test
+    void transientCauseChain() {
+        assertThat(TransactionRetryExecutor.isTransient(new RuntimeException(new SQLException("직렬화 실패", "40001")))).isTrue();
+        assertThat(TransactionRetryExecutor.isTransient(new RuntimeException(new SQLException("락 타임아웃", "HYT00", 50200)))).isTrue();
+        assertThat(TransactionRetryExecutor.isTransient(new NotEnoughMoneyException("잔고부족"))).isFalse();
+    }
+
+    @Test
+    void connectionAcquisitionTimeoutIsNotTransient() {
+        SQLTransientConnectionException poolTimeout = new SQLTransientConnectionException("Connection is not available, request timed out after 30000ms.");
+
+        assertThat(TransactionRetryExecutor.isTransient(poolTimeout)).isFalse();
+        assertThat(TransactionRetryExecutor.isTransient(new CannotGetJdbcConnectionException("커넥션 획득 실패", poolTimeout))).isFalse();
+        assertThat(TransactionRetryExecutor.isTransient(new CannotCreateTransactionException("트랜잭션 시작 실패", poolTimeout))).isFalse();
+        // SQLExceptionSubclassTranslator 가 변환한 형태
+        assertThat(TransactionRetryExecutor.isTransient(new TransientDataAccessResourceException("변환됨", poolTimeout))).isFalse();
+        assertThat(TransactionRetryExecutor.isConnectionAcquisitionFailure(new CannotCreateTransactionException("트랜잭션 시작 실패", poolTimeout))).isTrue();
+    }
+
+    @Test
+    void orderFacade_bizExceptionIsNotRetried() {
+        long retries = retryExecutor.getRetries();
+        Order order = new Order();
+        order.setUsername("잔고부족");
+        order.setAmount(10_000L); // 계좌가 없으므로 잔고 0
+
+        assertThatThrownBy(() -> orderFacade.order(order))
+                .isInstanceOf(NotEnoughMoneyException.class);
+
+        // 재시도 없이 커밋된 상태 그대로
+        assertThat(retryExecutor.getRetries()).isEqualTo(retries);
+        assertThat(orderRepository.findById(order.getId()).get().getPayStatus()).isEqualTo("대기");
+    }
+
+}